@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf csv}, e.g. from the commits
+ * before and after a change, and prints each benchmark's score change.
+ * <p>
+ * Usage: {@code java -cp benchmarks/target/benchmarks.jar benchmarks.CompareResults before.csv after.csv}
+ */
+public final class CompareResults {
+
+    private CompareResults() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults before.csv after.csv");
+            System.exit(2);
+        }
+        Map<String, double[]> before = read(Path.of(args[0]));
+        Map<String, double[]> after = read(Path.of(args[1]));
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Before", "After", "Change");
+        for (Map.Entry<String, double[]> entry : after.entrySet()) {
+            double[] old = before.get(entry.getKey());
+            double[] now = entry.getValue();
+            if (old == null) {
+                System.out.printf("%-70s %14s %14.3f %9s%n", entry.getKey(), "-", now[0], "new");
+                continue;
+            }
+            double change = 100.0 * (now[0] - old[0]) / old[0];
+            // Within both runs' error bars the difference is noise
+            boolean significant = Math.abs(now[0] - old[0]) > old[1] + now[1];
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), old[0], now[0], change,
+                    significant ? "" : " (noise)");
+        }
+        for (String key : before.keySet()) {
+            if (!after.containsKey(key)) System.out.printf("%-70s %14.3f %14s %9s%n", key, before.get(key)[0], "-", "removed");
+        }
+    }
+
+    /** Score and error per benchmark, keyed by name, mode, unit and parameters. */
+    private static Map<String, double[]> read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Map<String, double[]> results = new LinkedHashMap<>();
+        if (lines.isEmpty()) return results;
+        List<String> header = split(lines.get(0));
+        int name = header.indexOf("Benchmark"), mode = header.indexOf("Mode"), unit = header.indexOf("Unit");
+        int score = header.indexOf("Score"), error = header.indexOf("Score Error (99.9%)");
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) continue;
+            List<String> fields = split(line);
+            StringBuilder key = new StringBuilder(fields.get(name)).append(' ').append(fields.get(mode));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ")) key.append(' ').append(header.get(i).substring(7)).append('=').append(fields.get(i));
+            }
+            key.append(" [").append(fields.get(unit)).append(']');
+            double err = error >= 0 ? parse(fields.get(error)) : 0;
+            results.put(key.toString(), new double[] {parse(fields.get(score)), Double.isNaN(err) ? 0 : err});
+        }
+        return results;
+    }
+
+    private static double parse(String number) {
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // JMH quotes every text field and never embeds quotes in them
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        boolean quoted = false;
+        StringBuilder field = new StringBuilder();
+        for (char c : line.toCharArray()) {
+            if (c == '"') quoted = !quoted;
+            else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else field.append(c);
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,124 @@
+package main;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading the leaderboard as {@code ScoreManager.loadScores} does, for score
+ * histories of {@code lines} entries: reading the top scores from an open
+ * leaderboard, opening one cold, and the one-off import of an old scores.txt.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeaderboardBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int lines;
+
+    private Path directory;
+    private Path legacyScores;
+    private Path boardFile;
+    private Leaderboard board;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("leaderboard-bench");
+        legacyScores = directory.resolve("scores.txt");
+        Random random = new Random(42L);
+        List<String> text = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) text.add("user" + random.nextInt(1000) + " - " + random.nextInt(100_000));
+        Files.write(legacyScores, text, StandardCharsets.UTF_8);
+
+        boardFile = directory.resolve("leaderboard.dat");
+        board = Leaderboard.open(boardFile, legacyScores);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        board.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /** What the end screen does to show the leaderboard. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public List<String> loadScores() {
+        List<String> scores = new ArrayList<>();
+        for (Leaderboard.Entry entry : board.top(Leaderboard.TOP_K)) scores.add(entry.userId + " - " + entry.score);
+        return scores;
+    }
+
+    /** The first load after starting the game: map the file, then read the top scores. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public List<Leaderboard.Entry> openAndLoad() throws IOException {
+        Leaderboard cold = Leaderboard.open(boardFile, null);
+        try {
+            return cold.top(Leaderboard.TOP_K);
+        } finally {
+            cold.close();
+        }
+    }
+
+    /** Importing a scores.txt of {@code lines} lines into a new leaderboard. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int migrate(MigrationFiles files) throws IOException {
+        Leaderboard migrated = Leaderboard.open(files.target, files.legacy);
+        try {
+            return migrated.size();
+        } finally {
+            migrated.close();
+        }
+    }
+
+    /** No leaderboard yet before every import; the old scores file is only read, so it is shared. */
+    @State(Scope.Thread)
+    public static class MigrationFiles {
+        Path legacy;
+        Path target;
+
+        @Setup(Level.Invocation)
+        public void prepare(LeaderboardBenchmark benchmark) throws IOException {
+            legacy = benchmark.legacyScores;
+            target = benchmark.directory.resolve("migrate.dat");
+            Files.deleteIfExists(target);
+        }
+    }
+}
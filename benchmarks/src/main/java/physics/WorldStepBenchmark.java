@@ -0,0 +1,160 @@
+package physics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import shapes.BallType;
+import shapes.Circle;
+import shapes.MyShape;
+
+/**
+ * One physics step, and each of its phases on its own, for a settled pile of
+ * {@code balls} balls. Every iteration starts again from the same settled world, so
+ * runs see the same sequence of states and results are comparable between commits.
+ * Merging is off in that world; {@link #collideAndMerge} gets a pile of its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldStepBenchmark {
+
+    private static final double DT = 1.0 / 120;
+    private static final double CELL = 100;
+    private static final int SETTLE_STEPS = 240;
+
+    @Param({"50", "200", "1000", "5000"})
+    public int balls;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private byte[] settled;
+    private byte[] sameTypeSettled;
+    private SuikaWorld world;
+    private final MyShape view = new Circle();
+
+    @Setup(Level.Trial)
+    public void settle() {
+        settled = settle(false);
+        sameTypeSettled = settle(true);
+    }
+
+    /**
+     * Drops {@code balls} balls in a grid and lets them come to rest with merging off,
+     * so the pile really holds that many.
+     * @param sameType Whether every ball is the same type, so each one rests against
+     *                 several it can merge with; otherwise five sizes are arranged so
+     *                 no two neighbours start out touching their own kind.
+     * @return The settled world as a {@link WorldSnapshot}.
+     */
+    private byte[] settle(boolean sameType) {
+        // A grid wide enough for every ball, with odd rows offset so the pile interlocks as it falls
+        int columns = Math.max(5, (int) Math.ceil(Math.sqrt(balls)));
+        int rows = (balls + columns - 1) / columns;
+        SuikaWorld start = new SuikaWorld(columns * CELL + CELL / 2, SuikaWorld.GAME_OVER_LINE_Y + (rows + 1) * CELL, 42L);
+        start.setMergingEnabled(false);
+        Random jitter = new Random(42L);
+        BallType[] types = BallType.values();
+        for (int k = 0; k < balls; k++) {
+            int row = k / columns, column = k % columns;
+            BallType type = sameType ? BallType.LEVEL_4 : types[(column + 2 * row) % 5];
+            double x = (column + 0.5 + (row % 2) * 0.5) * CELL + jitter.nextDouble() * 4 - 2;
+            double y = start.getHeight() - (row + 0.5) * CELL;
+            start.bodies().add(type, x, y);
+        }
+        for (int i = 0; i < SETTLE_STEPS; i++) start.step(DT);
+        ByteBuffer buffer = ByteBuffer.allocate(WorldSnapshot.byteSize(start));
+        WorldSnapshot.write(start, buffer);
+        return buffer.array();
+    }
+
+    @Setup(Level.Iteration)
+    public void restore() throws IOException {
+        world = restore(settled, false);
+    }
+
+    private SuikaWorld restore(byte[] snapshot, boolean merging) throws IOException {
+        SuikaWorld restored = WorldSnapshot.read(ByteBuffer.wrap(snapshot));
+        restored.setParallelStepping(parallel);
+        restored.setMergingEnabled(merging);
+        return restored;
+    }
+
+    @Benchmark
+    public int step() {
+        world.step(DT);
+        return world.bodyCount();
+    }
+
+    @Benchmark
+    public int integrate() {
+        world.bodies().savePreviousState();
+        world.integrate(DT);
+        return world.bodyCount();
+    }
+
+    /** The same integration, one ball at a time through the shape view the game used to step with. */
+    @Benchmark
+    public int applyPhysics() {
+        BodyStore bodies = world.bodies();
+        bodies.savePreviousState();
+        bodies.prepareStep(DT);
+        int n = bodies.size();
+        for (int i = 0; i < n; i++) {
+            if (!bodies.isAsleep(i)) view.bind(bodies, i).applyPhysics(DT, world.getHeight(), 0, world.getWidth());
+        }
+        return n;
+    }
+
+    /** Broad phase plus contact resolution, including finding pairs that can merge. */
+    @Benchmark
+    public int collide() {
+        world.buildBroadPhase();
+        world.resolveCollisions(DT);
+        return world.getLastCandidatePairs();
+    }
+
+    /**
+     * Collisions plus merging in a settled pile of one type, where every ball touches
+     * several it can merge with. The first pass over that pile does nearly all the
+     * merging, so each call gets a fresh copy and is timed on its own.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = 50)
+    @Measurement(iterations = 5, batchSize = 50)
+    public int collideAndMerge(MergingWorld merging) {
+        SuikaWorld mergingWorld = merging.world;
+        mergingWorld.buildBroadPhase();
+        mergingWorld.resolveCollisions(DT);
+        mergingWorld.processMerges();
+        return mergingWorld.bodyCount();
+    }
+
+    @State(Scope.Thread)
+    public static class MergingWorld {
+        SuikaWorld world;
+
+        // Restoring a whole pile is far slower than merging it, but JMH leaves invocation setup out of single-shot times
+        @Setup(Level.Invocation)
+        public void restore(WorldStepBenchmark benchmark) throws IOException {
+            world = benchmark.restore(benchmark.sameTypeSettled, true);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package shapes;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import physics.BodyStore;
+
+/**
+ * {@link Circle#draw} for one rotated ball into an offscreen image, with the same
+ * rendering hints the game panel uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CircleDrawBenchmark {
+
+    @Param({"LEVEL_0", "LEVEL_5", "LEVEL_10"})
+    public BallType type;
+
+    private BufferedImage target;
+    private Graphics2D g;
+    private final Circle circle = new Circle();
+    private double angle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        target = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB_PRE);
+        g = target.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        BodyStore store = new BodyStore();
+        store.add(type, 400, 300);
+        circle.bind(store, 0);
+        BallSprites.prepare(type);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage draw() {
+        // A different angle each call, as balls roll in play
+        angle += 0.01;
+        circle.angle = angle;
+        circle.draw(g);
+        return target;
+    }
+}
@@ -0,0 +1,57 @@
+package shapes;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sprite lookups through {@link BallSprites}, which replaced resizing a ball's
+ * image icon on every draw: the per-type fast path, a hit in the LRU cache, and a
+ * miss that scales a new sprite from the mip chain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SpriteBenchmark {
+
+    private static final BallType[] TYPES = BallType.values();
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (BallType type : TYPES) BallSprites.prepare(type);
+    }
+
+    @Benchmark
+    public BufferedImage sameSize() {
+        return BallSprites.getSprite(BallType.LEVEL_5, 128);
+    }
+
+    /** Two sizes in turn, so every lookup misses the fast path but hits the cache. */
+    @Benchmark
+    public BufferedImage cacheHit() {
+        next ^= 1;
+        return BallSprites.getSprite(BallType.LEVEL_5, 128 + next);
+    }
+
+    /** Cycles through more sizes than the cache holds, so every lookup scales a new sprite. */
+    @Benchmark
+    public BufferedImage cacheMiss() {
+        next = (next + 1) % 200;
+        return BallSprites.getSprite(BallType.LEVEL_5, 64 + next);
+    }
+}
@@ -0,0 +1,112 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import javax.swing.SwingUtilities;
+import panels.ScenePanel;
+import shapes.BallSprites;
+import shapes.BallType;
+import utils.ImageCache;
+import utils.SoundUtils;
+import utils.StartupTimings;
+
+/**
+ * Decodes every image and sound effect the game uses on a small worker pool while
+ * the start screen is up, so pressing Play never waits on a decode. Screens still
+ * ask {@link ImageCache} for their images as before; asking for one the pool has not
+ * reached yet simply decodes it on the spot.
+ */
+final class AssetPreloader {
+
+    // Screen images, the ones the start screen needs first
+    private static final String[] IMAGES = {
+        "/icons/start_bg.png", "/icons/icon.png", "/icons/playButton.png", "/icons/closeButton.png",
+        "/icons/bg.png", "/icons/score.png", "/icons/next.png",
+    };
+    private static final String[] SOUNDS = {ScenePanel.MERGE_SOUND};
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final AtomicInteger completed = new AtomicInteger();
+    // Touched on the EDT only
+    private final List<Runnable> whenDone = new ArrayList<>();
+    private final List<IntConsumer> progressListeners = new ArrayList<>();
+    private boolean done;
+
+    AssetPreloader() {
+        for (String image : IMAGES) tasks.add(() -> ImageCache.getImage(image));
+        // Largest first: they take longest to decode and scale
+        BallType[] types = BallType.values();
+        for (int i = types.length - 1; i >= 0; i--) {
+            BallType type = types[i];
+            tasks.add(() -> BallSprites.prepare(type));
+        }
+        for (String sound : SOUNDS) tasks.add(() -> SoundUtils.preload(sound));
+    }
+
+    /** Starts decoding on background threads; returns at once. */
+    void start() {
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "asset-loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            // Below the EDT, so the start screen stays smooth while this runs
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        long startNanos = System.nanoTime();
+        for (Runnable task : tasks) {
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to preload asset: " + e);
+                }
+                int finished = completed.incrementAndGet();
+                SwingUtilities.invokeLater(this::onProgress);
+                if (finished == tasks.size()) {
+                    System.out.printf("Preloaded %d assets in %d ms on %d threads%n",
+                            tasks.size(), (System.nanoTime() - startNanos) / 1_000_000, threads);
+                    StartupTimings.mark("assets loaded");
+                }
+            });
+        }
+        pool.shutdown();
+    }
+
+    int getTotal() {
+        return tasks.size();
+    }
+
+    /** Must be called on the EDT. */
+    boolean isDone() {
+        return done;
+    }
+
+    /** Reports the number of finished assets on the EDT as loading goes on. */
+    void addProgressListener(IntConsumer listener) {
+        progressListeners.add(listener);
+        listener.accept(completed.get());
+    }
+
+    /** Runs the action on the EDT once every asset is loaded, straight away if that is already so. */
+    void whenDone(Runnable action) {
+        if (done) action.run();
+        else whenDone.add(action);
+    }
+
+    // Reads the count rather than taking it as an argument: updates from different workers can arrive out of order
+    private void onProgress() {
+        int finished = completed.get();
+        for (IntConsumer listener : progressListeners) listener.accept(finished);
+        if (finished == tasks.size() && !done) {
+            done = true;
+            for (Runnable action : whenDone) action.run();
+            whenDone.clear();
+        }
+    }
+}
@@ -2,15 +2,13 @@ package main;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.net.URL;
 import java.util.List;
-import javax.imageio.ImageIO;
 import javax.swing.*;
+import utils.ImageCache;
 
 public class EndScreen extends JPanel {
     private final GameManager gameManager;
-    private final JLabel titleLabel, scoreLabel, userIdLabel;
+    private final JLabel titleLabel, scoreLabel, userIdLabel, personalBestLabel;
     private final JButton saveScoreButton, restartButton, mainMenuButton, exitButton;
     private final JTextArea leaderboardArea;
     private final JScrollPane leaderboardScrollPane;
@@ -33,6 +31,7 @@ public class EndScreen extends JPanel {
         titleLabel = createLabel("Game Over!", new Font("Arial", Font.BOLD, 48), textColor);
         userIdLabel = createLabel("User: " + userId, new Font("Arial", Font.PLAIN, 24), textColor);
         scoreLabel = createLabel("Your Score: " + score, new Font("Arial", Font.BOLD, 32), textColor);
+        personalBestLabel = createLabel(" ", new Font("Arial", Font.PLAIN, 18), textColor);
 
         saveScoreButton = createButton("Save Score");
         restartButton = createButton("Restart Game");
@@ -40,10 +39,19 @@ public class EndScreen extends JPanel {
         exitButton = createButton("Exit Game");
 
         saveScoreButton.addActionListener(e -> {
-            ScoreManager.saveScore(this.userId, this.score);
-            JOptionPane.showMessageDialog(this, "Score saved!", "Success", JOptionPane.INFORMATION_MESSAGE);
             saveScoreButton.setEnabled(false);
-            loadAndDisplayLeaderboard();
+            // Saving writes files and may start the leaderboard service, so it stays off the EDT
+            ScoreManager.execute(() -> {
+                boolean saved = ScoreManager.saveScore(this.userId, this.score);
+                SwingUtilities.invokeLater(() -> {
+                    if (saved) {
+                        JOptionPane.showMessageDialog(this, "Score saved!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    } else {
+                        saveScoreButton.setEnabled(true);
+                    }
+                });
+                loadScoresAndStats();
+            });
         });
         restartButton.addActionListener(e -> gameManager.startGame(this.userId));
         mainMenuButton.addActionListener(e -> gameManager.showStartScreen());
@@ -68,6 +76,7 @@ public class EndScreen extends JPanel {
         add(titleLabel, gbc);
         add(userIdLabel, gbc);
         add(scoreLabel, gbc);
+        add(personalBestLabel, gbc);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 10));
         buttonPanel.setOpaque(false);
@@ -83,7 +92,8 @@ public class EndScreen extends JPanel {
         gbc.insets = new Insets(10, 50, 50, 50);
         add(leaderboardScrollPane, gbc);
 
-        loadAndDisplayLeaderboard();
+        leaderboardArea.setText("Loading scores...");
+        ScoreManager.execute(this::loadScoresAndStats);
     }
 
     private JLabel createLabel(String text, Font font, Color color) {
@@ -100,16 +110,9 @@ public class EndScreen extends JPanel {
     }
 
     private void loadResources() {
-        try {
-            URL bgUrl = getClass().getResource("/icons/start_bg.png");
-            if (bgUrl != null) {
-                backgroundImage = ImageIO.read(bgUrl);
-            } else {
-                System.err.println("End screen background not found!");
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.err.println("Failed to load end screen background.");
+        backgroundImage = ImageCache.getImage("/icons/start_bg.png");
+        if (backgroundImage == null) {
+            System.err.println("End screen background not found!");
         }
     }
 
@@ -121,8 +124,27 @@ public class EndScreen extends JPanel {
         }
     }
 
-    private void loadAndDisplayLeaderboard() {
+    // Runs on the score thread; only the label updates go to the EDT
+    private void loadScoresAndStats() {
         List<String> scores = ScoreManager.loadScores();
+        UserStats stats = ScoreManager.getUserStats(userId);
+        int rankedUsers = ScoreManager.getRankedUserCount();
+        SwingUtilities.invokeLater(() -> {
+            displayLeaderboard(scores);
+            displayPersonalBest(stats, rankedUsers);
+        });
+    }
+
+    private void displayPersonalBest(UserStats stats, int rankedUsers) {
+        if (stats == null) {
+            personalBestLabel.setText("No saved scores yet");
+            return;
+        }
+        personalBestLabel.setText(String.format("Personal Best: %d   Rank: #%d of %d   Games: %d   Average: %.0f",
+                stats.getBest(), stats.getRank(), rankedUsers, stats.getGames(), stats.getMean()));
+    }
+
+    private void displayLeaderboard(List<String> scores) {
         leaderboardArea.setText("");
         if (scores.isEmpty()) {
             leaderboardArea.append("No scores saved yet.\nBe the first!");
@@ -2,59 +2,35 @@ package main;
 
 import java.awt.*;
 import java.io.*;
-import java.util.*;
-import java.util.List;
 import javax.swing.*;
-
-class ScoreManager {
-    private static final String SCORE_FILE = "scores.txt";
-
-    public static void saveScore(String userId, int score) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(SCORE_FILE, true))) {
-            writer.println(userId + " - " + score);
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error saving score: " + e.getMessage(), "File I/O Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
-    public static List<String> loadScores() {
-        List<String> scores = new ArrayList<>();
-        File file = new File(SCORE_FILE);
-        if (!file.exists()) return scores;
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) scores.add(scanner.nextLine());
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error loading scores: " + e.getMessage(), "File I/O Error", JOptionPane.ERROR_MESSAGE);
-        }
-        scores.sort((s1, s2) -> {
-            try {
-                int score1 = Integer.parseInt(s1.substring(s1.lastIndexOf(" ") + 1));
-                int score2 = Integer.parseInt(s2.substring(s2.lastIndexOf(" ") + 1));
-                return Integer.compare(score2, score1);
-            } catch (NumberFormatException e) { return 0; }
-        });
-        return scores;
-    }
-}
+import physics.StressScene;
 
 public class GameManager {
     private final JFrame window;
+    private final MusicPlayer musicPlayer;
+    private final AssetPreloader assets;
     private final CardLayout cardLayout = new CardLayout();
     private final JPanel mainPanelContainer = new JPanel(cardLayout);
 
     private final StartScreen startScreen;
     private ShouldbeMain gameScreen; // This is the main game panel
     private EndScreen endScreen;
+    private StressScreen stressScreen;
 
     public static final String START_SCREEN_KEY = "START";
     public static final String GAME_SCREEN_KEY = "GAME";
     public static final String END_SCREEN_KEY = "END";
+    public static final String STRESS_SCREEN_KEY = "STRESS";
 
     private String currentUserId;
     private int lastScore;
+    // True from the start of a game until it ends; only such a game is saved on exit
+    private boolean gameInProgress;
 
-    public GameManager(JFrame window) {
+    public GameManager(JFrame window, MusicPlayer musicPlayer, AssetPreloader assets) {
         this.window = window;
+        this.musicPlayer = musicPlayer;
+        this.assets = assets;
         startScreen = new StartScreen(this);
         mainPanelContainer.add(startScreen, START_SCREEN_KEY);
         window.add(mainPanelContainer);
@@ -62,23 +38,99 @@ public class GameManager {
 
     public void startGame(String userId) {
         this.currentUserId = userId;
+        closeStressTest();
         // Clean up old game screen if it exists
         if (gameScreen != null) {
             gameScreen.prepareToClose(); // Stop animations and timers
             mainPanelContainer.remove(gameScreen);
         }
         gameScreen = new ShouldbeMain(this); // Create new game instance
+        showGameScreen();
+    }
+
+    /**
+     * Continues the game saved when the window was last closed. The save is consumed;
+     * it is written again if the window is closed during the resumed game.
+     */
+    public void resumeGame() {
+        SavedGame saved;
+        try {
+            saved = SavedGame.load();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(window, "Could not resume the saved game: " + e.getMessage(), "Resume Error", JOptionPane.ERROR_MESSAGE);
+            SavedGame.delete();
+            startScreen.refreshResumeOption();
+            return;
+        }
+        SavedGame.delete();
+        this.currentUserId = saved.userId;
+        closeStressTest();
+        if (gameScreen != null) {
+            gameScreen.prepareToClose();
+            mainPanelContainer.remove(gameScreen);
+        }
+        gameScreen = new ShouldbeMain(this, saved);
+        showGameScreen();
+    }
+
+    private void showGameScreen() {
+        gameInProgress = true;
+        musicPlayer.playMusic(MusicPlayer.GAME_TRACK);
         mainPanelContainer.add(gameScreen, GAME_SCREEN_KEY);
         cardLayout.show(mainPanelContainer, GAME_SCREEN_KEY);
         gameScreen.requestFocusInWindow();
     }
 
+    /** Shows the engine stress test in place of a game; it is never scored or saved. */
+    public void startStressTest(StressScene stress) {
+        if (gameScreen != null) {
+            gameScreen.prepareToClose();
+            mainPanelContainer.remove(gameScreen);
+            gameScreen = null;
+        }
+        closeStressTest();
+        startScreen.stopAnimation();
+        stressScreen = new StressScreen(this, stress);
+        mainPanelContainer.add(stressScreen, STRESS_SCREEN_KEY);
+        cardLayout.show(mainPanelContainer, STRESS_SCREEN_KEY);
+        stressScreen.requestFocusInWindow();
+    }
+
+    private void closeStressTest() {
+        if (stressScreen == null) return;
+        stressScreen.prepareToClose();
+        mainPanelContainer.remove(stressScreen);
+        stressScreen = null;
+    }
+
+    public boolean hasSavedGame() {
+        return SavedGame.exists();
+    }
+
+    /** Stops the running game, if any, and saves it so the start screen can offer to resume it. */
+    public void saveGameInProgress() {
+        if (!gameInProgress || gameScreen == null) return;
+        gameInProgress = false;
+        gameScreen.prepareToClose();
+        if (!gameScreen.isStopped()) {
+            // Still mid-step: a snapshot taken now could mix two steps
+            System.err.println("Not saving game in progress: the game did not stop in time");
+            return;
+        }
+        try {
+            SavedGame.save(currentUserId, gameScreen.getTimeLeftSeconds(), gameScreen.getWorld());
+        } catch (IOException e) {
+            System.err.println("Failed to save game in progress: " + e.getMessage());
+        }
+    }
+
     /**
      * MODIFIED: Now cleans up the game screen by calling prepareToClose()
      * before switching to the end screen. This stops the game timer and physics.
      */
     public void endGame(int score) {
         this.lastScore = score;
+        gameInProgress = false;
         if (currentUserId == null || currentUserId.trim().isEmpty()) currentUserId = "Guest";
         
         // Stop all game activities before showing the end screen
@@ -90,6 +142,7 @@ public class GameManager {
         if (endScreen != null) {
             mainPanelContainer.remove(endScreen);
         }
+        musicPlayer.playMusic(MusicPlayer.END_TRACK);
         endScreen = new EndScreen(this, currentUserId, lastScore);
         mainPanelContainer.add(endScreen, END_SCREEN_KEY);
         cardLayout.show(mainPanelContainer, END_SCREEN_KEY);
@@ -102,13 +155,19 @@ public class GameManager {
             mainPanelContainer.remove(gameScreen);
             gameScreen = null;
         }
+        closeStressTest();
         cardLayout.show(mainPanelContainer, START_SCREEN_KEY);
+        musicPlayer.playMusic(MusicPlayer.START_TRACK);
+        startScreen.refreshResumeOption();
         startScreen.startAnimation();
     }
 
     public void exitGame() {
         int confirm = JOptionPane.showConfirmDialog(window, "Are you sure you want to exit?", "Exit Confirmation", JOptionPane.YES_NO_OPTION);
-        if (confirm == JOptionPane.YES_OPTION) System.exit(0);
+        if (confirm == JOptionPane.YES_OPTION) {
+            saveGameInProgress();
+            System.exit(0);
+        }
     }
 
     // --- GETTER METHODS ---
@@ -116,6 +175,9 @@ public class GameManager {
     public String getCurrentUserId() { return currentUserId; }
     public int getLastScore() { return lastScore; }
     public JFrame getWindow() { return window; }
+    public MusicPlayer getMusicPlayer() { return musicPlayer; }
+
+    AssetPreloader getAssets() { return assets; }
     
     public ShouldbeMain getGameScreen() {
         return gameScreen;
@@ -0,0 +1,249 @@
+package main;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every saved score, kept in a memory-mapped file of fixed-width records together
+ * with an index of the top {@link #TOP_K} scores.
+ * <p>
+ * The file starts with a header whose commit word holds the record count and
+ * which of two index slots is live. An insert appends its record, writes the
+ * updated index into the other slot, and only then flips the commit word with a
+ * single aligned write, so a crash part-way through leaves the previous state.
+ */
+final class Leaderboard {
+
+    static final int TOP_K = 100;
+
+    private static final int MAGIC = 0x534B4C42; // "SKLB"
+    private static final int VERSION = 1;
+
+    // Header: magic, version, then the commit word (record count << 1 | live index slot)
+    private static final int COMMIT_OFFSET = 8;
+    private static final int HEADER_SIZE = 64;
+
+    // Index slot: entry count, then (score, record number) pairs sorted best first, each read as one long
+    private static final int INDEX_ENTRY_SIZE = 8;
+    private static final int INDEX_SLOT_SIZE = 4 + TOP_K * INDEX_ENTRY_SIZE;
+    private static final int RECORDS_OFFSET = HEADER_SIZE + 2 * INDEX_SLOT_SIZE;
+
+    // Record: user name length and UTF-8 bytes, score, save time
+    static final int MAX_USER_BYTES = 31;
+    private static final int RECORD_SIZE = 48;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Path file;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int capacity;
+    private int recordCount;
+    private int liveSlot;
+
+    /** One leaderboard entry. */
+    static final class Entry {
+        final String userId;
+        final int score;
+        final long savedAtMillis;
+
+        Entry(String userId, int score, long savedAtMillis) {
+            this.userId = userId;
+            this.score = score;
+            this.savedAtMillis = savedAtMillis;
+        }
+    }
+
+    private Leaderboard(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the leaderboard, creating it if needed. A new leaderboard first imports
+     * {@code legacyScores} ("user - score" lines). The legacy file is left as it is;
+     * once the leaderboard file exists it is never imported again.
+     */
+    static Leaderboard open(Path file, Path legacyScores) throws IOException {
+        if (!Files.exists(file) && legacyScores != null && Files.isRegularFile(legacyScores)) {
+            migrate(file, legacyScores);
+        }
+        Leaderboard board = new Leaderboard(file);
+        board.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (board.channel.size() < RECORDS_OFFSET) board.initialize();
+        else board.load();
+        return board;
+    }
+
+    private void initialize() throws IOException {
+        mapWithCapacity(INITIAL_CAPACITY);
+        map.putInt(0, MAGIC);
+        map.putInt(4, VERSION);
+        map.putInt(HEADER_SIZE, 0);
+        map.putInt(HEADER_SIZE + INDEX_SLOT_SIZE, 0);
+        map.putLong(COMMIT_OFFSET, 0L);
+        map.force();
+        recordCount = 0;
+        liveSlot = 0;
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        mapWithCapacity((int) Math.max(0, (size - RECORDS_OFFSET) / RECORD_SIZE));
+        if (map.getInt(0) != MAGIC) throw new IOException("Not a leaderboard file: " + file);
+        int version = map.getInt(4);
+        if (version != VERSION) throw new IOException("Unsupported leaderboard version " + version);
+        long commit = map.getLong(COMMIT_OFFSET);
+        recordCount = (int) (commit >>> 1);
+        liveSlot = (int) (commit & 1);
+        if (recordCount > capacity) throw new IOException("Corrupt leaderboard: " + recordCount + " records in a file for " + capacity);
+    }
+
+    private void mapWithCapacity(int records) throws IOException {
+        capacity = records;
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, RECORDS_OFFSET + (long) records * RECORD_SIZE);
+    }
+
+    /**
+     * Builds the leaderboard from the text file in a temporary file, flushed once at
+     * the end, and moves it into place only when complete.
+     */
+    private static void migrate(Path file, Path legacyScores) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        Leaderboard board = new Leaderboard(temp);
+        board.channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        board.initialize();
+        long savedAt = Files.getLastModifiedTime(legacyScores).toMillis();
+        List<Entry> entries = new ArrayList<>();
+        int skipped = 0;
+        for (String line : Files.readAllLines(legacyScores, StandardCharsets.UTF_8)) {
+            int separator = line.lastIndexOf(" - ");
+            try {
+                if (separator < 0) throw new NumberFormatException();
+                entries.add(new Entry(line.substring(0, separator), Integer.parseInt(line.substring(separator + 3).trim()), savedAt));
+            } catch (NumberFormatException e) {
+                if (!line.isBlank()) skipped++;
+            }
+        }
+        board.addAll(entries);
+        board.close();
+        if (skipped > 0) System.err.println("Skipped " + skipped + " unreadable lines while importing " + legacyScores);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Appends a score and updates the top index; O(log K) to place it plus a bounded copy. */
+    synchronized void add(String userId, int score, long savedAtMillis) throws IOException {
+        addAll(List.of(new Entry(userId, score, savedAtMillis)));
+    }
+
+    /**
+     * Appends several scores under a single commit: all of them become visible
+     * together, and the file is only flushed twice however many there are.
+     */
+    synchronized void addAll(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) return;
+        int needed = recordCount + entries.size();
+        if (needed > capacity) {
+            int grown = Math.max(INITIAL_CAPACITY, capacity);
+            while (grown < needed) grown *= 2;
+            mapWithCapacity(grown);
+        }
+
+        // Work on a copy of the live index so the live slot stays intact until the commit
+        int live = HEADER_SIZE + liveSlot * INDEX_SLOT_SIZE;
+        long[] index = new long[TOP_K];
+        int size = map.getInt(live);
+        for (int i = 0; i < size; i++) index[i] = map.getLong(live + 4 + i * INDEX_ENTRY_SIZE);
+
+        int record = recordCount;
+        for (Entry entry : entries) {
+            writeRecord(record, entry.userId, entry.score, entry.savedAtMillis);
+            int position = insertionPoint(index, size, entry.score);
+            if (position < TOP_K) {
+                System.arraycopy(index, position, index, position + 1, Math.min(size, TOP_K - 1) - position);
+                index[position] = ((long) entry.score << 32) | record;
+                size = Math.min(TOP_K, size + 1);
+            }
+            record++;
+        }
+
+        int next = HEADER_SIZE + (1 - liveSlot) * INDEX_SLOT_SIZE;
+        for (int i = 0; i < size; i++) map.putLong(next + 4 + i * INDEX_ENTRY_SIZE, index[i]);
+        map.putInt(next, size);
+        // Records and the new index must be on disk before the commit word points at them
+        map.force();
+        recordCount = record;
+        liveSlot = 1 - liveSlot;
+        map.putLong(COMMIT_OFFSET, ((long) recordCount << 1) | liveSlot);
+        map.force();
+    }
+
+    // Ties go after existing entries, so an earlier score keeps its place
+    private static int insertionPoint(long[] index, int size, int score) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if ((int) (index[mid] >> 32) >= score) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private void writeRecord(int record, String userId, int score, long savedAtMillis) {
+        int offset = RECORDS_OFFSET + record * RECORD_SIZE;
+        byte[] user = truncatedUtf8(userId == null ? "" : userId);
+        map.put(offset, (byte) user.length);
+        for (int i = 0; i < MAX_USER_BYTES; i++) map.put(offset + 1 + i, i < user.length ? user[i] : 0);
+        map.putInt(offset + 32, score);
+        map.putLong(offset + 36, savedAtMillis);
+    }
+
+    /** The name as it will read back from a record, after truncation to {@link #MAX_USER_BYTES}. */
+    static String storedUserId(String userId) {
+        return new String(truncatedUtf8(userId == null ? "" : userId), StandardCharsets.UTF_8);
+    }
+
+    // Cuts on a character boundary so the stored name stays valid UTF-8
+    private static byte[] truncatedUtf8(String userId) {
+        byte[] bytes = userId.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_USER_BYTES) return bytes;
+        int length = MAX_USER_BYTES;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) length--;
+        byte[] cut = new byte[length];
+        System.arraycopy(bytes, 0, cut, 0, length);
+        return cut;
+    }
+
+    synchronized Entry readRecord(int record) {
+        int offset = RECORDS_OFFSET + record * RECORD_SIZE;
+        int length = map.get(offset) & 0xFF;
+        byte[] user = new byte[Math.min(length, MAX_USER_BYTES)];
+        for (int i = 0; i < user.length; i++) user[i] = map.get(offset + 1 + i);
+        return new Entry(new String(user, StandardCharsets.UTF_8), map.getInt(offset + 32), map.getLong(offset + 36));
+    }
+
+    /** The best {@code n} scores (at most {@link #TOP_K}), best first; reads only the index. */
+    synchronized List<Entry> top(int n) {
+        int live = HEADER_SIZE + liveSlot * INDEX_SLOT_SIZE;
+        int size = Math.min(n, map.getInt(live));
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) entries.add(readRecord(map.getInt(live + 4 + i * INDEX_ENTRY_SIZE + 4)));
+        return entries;
+    }
+
+    synchronized int size() {
+        return recordCount;
+    }
+
+    synchronized void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,115 @@
+package main;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import utils.VirtualThreads;
+
+/**
+ * Measures how many score submissions per second a {@link LeaderboardServer} takes.
+ * Starts a throwaway server on loopback unless {@code -Dsuika.leaderboard.url} names
+ * one, then has each simulated client post batches back to back for the duration.
+ * <p>
+ * Usage: {@code java main.LeaderboardLoadTest [clients=64] [seconds=10] [batchSize=20]}
+ */
+public final class LeaderboardLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        String external = System.getProperty("suika.leaderboard.url");
+        Path file = null;
+        LeaderboardServer server = null;
+        URI base;
+        if (external != null) {
+            base = URI.create(external);
+        } else {
+            file = Files.createTempFile("leaderboard-load", ".dat");
+            Files.delete(file);
+            server = LeaderboardServer.start(0, file);
+            base = URI.create("http://127.0.0.1:" + server.getPort());
+        }
+        URI scores = base.resolve("/scores");
+
+        ExecutorService workers = VirtualThreads.newThreadPerTaskExecutor("load-client");
+        // The HTTP client gets its own executor: the workers' is shut down while requests are in flight
+        ExecutorService httpExecutor = VirtualThreads.newThreadPerTaskExecutor("load-http");
+        HttpClient http = HttpClient.newBuilder().executor(httpExecutor).build();
+        AtomicLong submitted = new AtomicLong();
+        AtomicLong requests = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        // Per-request latencies in microseconds, one array per client to avoid contention
+        long[][] latencies = new long[clients][];
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        System.out.printf("%d clients, batches of %d, %d s against %s (%s threads)%n", clients, batchSize, seconds, base,
+                VirtualThreads.isAvailable() ? "virtual" : "platform");
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            workers.execute(() -> {
+                long[] own = new long[1024];
+                int count = 0;
+                StringBuilder body = new StringBuilder();
+                while (System.nanoTime() < deadline) {
+                    body.setLength(0);
+                    long now = System.currentTimeMillis();
+                    for (int i = 0; i < batchSize; i++) {
+                        body.append("load").append(client).append(' ')
+                                .append(ThreadLocalRandom.current().nextInt(100_000)).append(' ').append(now).append('\n');
+                    }
+                    HttpRequest request = HttpRequest.newBuilder(scores)
+                            .header("X-Batch-Id", UUID.randomUUID().toString())
+                            .POST(HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8))
+                            .build();
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 200) submitted.addAndGet(batchSize);
+                        else errors.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    requests.incrementAndGet();
+                    if (count == own.length) own = Arrays.copyOf(own, count * 2);
+                    own[count++] = (System.nanoTime() - sent) / 1000;
+                }
+                latencies[client] = Arrays.copyOf(own, count);
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        httpExecutor.shutdown();
+
+        long[] all = Arrays.stream(latencies).filter(l -> l != null).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%.0f submissions/s, %.0f requests/s, %d errors%n",
+                submitted.get() / elapsed, requests.get() / elapsed, errors.get());
+        if (all.length > 0) {
+            System.out.printf("latency p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    percentile(all, 0.50) / 1000.0, percentile(all, 0.95) / 1000.0, percentile(all, 0.99) / 1000.0,
+                    all[all.length - 1] / 1000.0);
+        }
+
+        if (server != null) {
+            server.stop();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+}
@@ -0,0 +1,217 @@
+package main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import utils.VirtualThreads;
+
+/**
+ * A small shared leaderboard service over HTTP, backed by a {@link Leaderboard} file.
+ * It binds to loopback only, as a stand-in for a service on the floor's network.
+ * <ul>
+ * <li>{@code POST /scores}: one score per line, {@code user score savedAtMillis}, with
+ * the user URL-encoded. A batch carrying an {@code X-Batch-Id} already seen is
+ * acknowledged without being stored again, so clients can safely retry.</li>
+ * <li>{@code GET /top?n=10}: the best scores, one {@code user score} line each.</li>
+ * </ul>
+ * Run standalone with {@code java main.LeaderboardServer [port] [file]}.
+ */
+public final class LeaderboardServer {
+
+    public static final int DEFAULT_PORT = Integer.getInteger("suika.leaderboard.port", 8765);
+    private static final int REMEMBERED_BATCHES = 10_000;
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private final Leaderboard leaderboard;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Queue<PendingBatch> pendingBatches = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Map<String, Boolean> seenBatches = new LinkedHashMap<>(1024, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > REMEMBERED_BATCHES;
+        }
+    };
+
+    private LeaderboardServer(Leaderboard leaderboard, HttpServer server) {
+        this.leaderboard = leaderboard;
+        this.server = server;
+        this.executor = VirtualThreads.newThreadPerTaskExecutor("leaderboard-http");
+        server.setExecutor(executor);
+        server.createContext("/scores", this::handleScores);
+        server.createContext("/top", this::handleTop);
+    }
+
+    /** Starts a server on loopback; port 0 picks a free port. */
+    public static LeaderboardServer start(int port, Path file) throws IOException {
+        // Small responses otherwise sit out a delayed ACK, capping each connection at ~25 requests/s
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        LeaderboardServer server = new LeaderboardServer(Leaderboard.open(file, null), http);
+        http.start();
+        return server;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            leaderboard.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close leaderboard: " + e.getMessage());
+        }
+    }
+
+    private void handleScores(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "POST only");
+                return;
+            }
+            byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                respond(exchange, 413, "Batch too large");
+                return;
+            }
+            List<Leaderboard.Entry> entries = new ArrayList<>();
+            for (String line : new String(body, StandardCharsets.UTF_8).split("\n")) {
+                if (line.isBlank()) continue;
+                String[] fields = line.trim().split(" ");
+                try {
+                    if (fields.length != 3) throw new IllegalArgumentException();
+                    entries.add(new Leaderboard.Entry(URLDecoder.decode(fields[0], StandardCharsets.UTF_8),
+                            Integer.parseInt(fields[1]), Long.parseLong(fields[2])));
+                } catch (IllegalArgumentException e) {
+                    respond(exchange, 400, "Bad score line: " + line);
+                    return;
+                }
+            }
+            String batchId = exchange.getRequestHeaders().getFirst("X-Batch-Id");
+            // Claiming the id before storing keeps a concurrent retry of the same batch from landing twice
+            if (batchId != null) {
+                synchronized (seenBatches) {
+                    if (seenBatches.putIfAbsent(batchId, Boolean.TRUE) != null) {
+                        respond(exchange, 200, "duplicate");
+                        return;
+                    }
+                }
+            }
+            try {
+                commit(entries);
+            } catch (IOException e) {
+                if (batchId != null) {
+                    synchronized (seenBatches) { seenBatches.remove(batchId); }
+                }
+                respond(exchange, 503, "Could not store scores: " + e.getMessage());
+                return;
+            }
+            respond(exchange, 200, "accepted " + entries.size());
+        }
+    }
+
+    /**
+     * Group commit: each request queues its scores, then whichever request gets the
+     * lock stores everything queued so far under one leaderboard commit. Requests
+     * that arrive during a flush are all written by the next one.
+     */
+    private void commit(List<Leaderboard.Entry> entries) throws IOException {
+        PendingBatch batch = new PendingBatch(entries);
+        pendingBatches.add(batch);
+        commitLock.lock();
+        try {
+            if (!batch.done) {
+                List<PendingBatch> group = new ArrayList<>();
+                List<Leaderboard.Entry> all = new ArrayList<>();
+                PendingBatch next;
+                while ((next = pendingBatches.poll()) != null) {
+                    group.add(next);
+                    all.addAll(next.entries);
+                }
+                IOException failure = null;
+                try {
+                    leaderboard.addAll(all);
+                } catch (IOException e) {
+                    failure = e;
+                }
+                for (PendingBatch member : group) {
+                    member.failure = failure;
+                    member.done = true;
+                }
+            }
+        } finally {
+            commitLock.unlock();
+        }
+        if (batch.failure != null) throw batch.failure;
+    }
+
+    // Fields are written and read under commitLock
+    private static final class PendingBatch {
+        final List<Leaderboard.Entry> entries;
+        boolean done;
+        IOException failure;
+
+        PendingBatch(List<Leaderboard.Entry> entries) {
+            this.entries = entries;
+        }
+    }
+
+    private void handleTop(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int n = 10;
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null && query.startsWith("n=")) {
+                try {
+                    n = Math.max(0, Integer.parseInt(query.substring(2)));
+                } catch (NumberFormatException e) {
+                    respond(exchange, 400, "Bad n");
+                    return;
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            for (Leaderboard.Entry entry : leaderboard.top(Math.min(n, Leaderboard.TOP_K))) {
+                text.append(URLEncoder.encode(entry.userId, StandardCharsets.UTF_8)).append(' ').append(entry.score).append('\n');
+            }
+            respond(exchange, 200, text.toString());
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Path file = Path.of(args.length > 1 ? args[1] : "leaderboard-server.dat");
+        LeaderboardServer server = start(port, file);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.out.println("Leaderboard service on http://127.0.0.1:" + server.getPort()
+                + (VirtualThreads.isAvailable() ? " (virtual threads)" : " (platform threads)"));
+    }
+}
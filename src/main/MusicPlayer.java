@@ -1,61 +1,240 @@
 package main;
 
 import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
 import javax.sound.sampled.*;
+import utils.AudioMixer;
 
+/**
+ * Streams looping background music into a {@link SourceDataLine} on its own thread.
+ * Tracks are decoded a chunk at a time, so memory use does not depend on track
+ * length, and switching tracks crossfades from the old one to the new one.
+ */
 public class MusicPlayer {
 
-    private Clip clip;
+    public static final String DEFAULT_TRACK = "/audio/main.wav";
+    public static final String START_TRACK = "/audio/start.wav";
+    public static final String GAME_TRACK = "/audio/game.wav";
+    public static final String END_TRACK = "/audio/end.wav";
+
+    private static final AudioFormat FORMAT = AudioMixer.FORMAT;
+    private static final int CHUNK_FRAMES = 2048;
+    private static final int CROSSFADE_FRAMES = (int) (AudioMixer.SAMPLE_RATE * 1.5);
+    private static final float MUSIC_GAIN = 0.6f;
+
+    // Requests from the EDT, picked up by the music thread between chunks
+    private volatile String requestedTrack;
+    private volatile boolean paused;
+    // The current music thread; an old thread that is no longer this one winds down
+    private volatile Thread thread;
 
     /**
-     * Plays a music file from the given resource path and loops it continuously.
+     * Plays a music file from the given resource path and loops it continuously,
+     * crossfading from whatever was playing. Returns immediately.
+     * A missing track falls back to {@link #DEFAULT_TRACK}.
      * @param resourcePath The path to the audio file within the project's resources.
      */
-    public void playMusic(String resourcePath) {
-        try {
-            // Use getResourceAsStream to load the file from the classpath.
-            // A leading slash "/" means the path is relative to the root of the classpath.
-            InputStream audioSrc = getClass().getResourceAsStream(resourcePath);
-
-            if (audioSrc == null) {
-                System.err.println("Could not find audio file at: " + resourcePath);
-                // Try without the leading slash for different classpath setups
-                audioSrc = getClass().getResourceAsStream(resourcePath.substring(1));
-                 if (audioSrc == null) {
-                    System.err.println("Also could not find audio file at: " + resourcePath.substring(1));
-                    return;
-                 }
-            }
+    public synchronized void playMusic(String resourcePath) {
+        String track = getClass().getResource(resourcePath) != null ? resourcePath : DEFAULT_TRACK;
+        requestedTrack = track;
+        notifyAll();
+        if (thread == null) {
+            thread = new Thread(this::run, "music");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public void pause() {
+        paused = true;
+    }
 
-            // We need to buffer the input stream to support the mark/reset methods
-            // used by some audio decoders.
-            InputStream bufferedIn = new BufferedInputStream(audioSrc);
-            AudioInputStream audioStream = AudioSystem.getAudioInputStream(bufferedIn);
-
-            clip = AudioSystem.getClip();
-            clip.open(audioStream);
-            clip.loop(Clip.LOOP_CONTINUOUSLY); // Loop the music indefinitely
-            clip.start();
-
-        } catch (UnsupportedAudioFileException e) {
-            System.err.println("The audio file format is not supported.");
-            System.err.println("To play .ogg files, you need to add specific libraries (like JOrbis, JOgg, and VorbisSPI) to your project's classpath.");
-            System.err.println("Alternatively, you can convert 'main.ogg' to a .wav file, which is natively supported.");
-            e.printStackTrace();
-        } catch (Exception e) {
-            System.err.println("An error occurred while trying to play music:");
-            e.printStackTrace();
+    public void resume() {
+        if (paused) {
+            paused = false;
+            synchronized (this) { notifyAll(); }
         }
     }
 
+    public boolean isPaused() {
+        return paused;
+    }
+
     /**
      * Stops the currently playing music and releases the resources.
      */
-    public void stopMusic() {
-        if (clip != null && clip.isRunning()) {
-            clip.stop();
-            clip.close();
+    public synchronized void stopMusic() {
+        Thread stopping = thread;
+        thread = null;
+        requestedTrack = null;
+        notifyAll();
+        if (stopping != null) stopping.interrupt();
+    }
+
+    private void run() {
+        Thread self = Thread.currentThread();
+        SourceDataLine line;
+        try {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, CHUNK_FRAMES * 4 * FORMAT.getFrameSize());
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("Music disabled: " + e.getMessage());
+            return;
+        }
+        short[] current = new short[CHUNK_FRAMES * 2];
+        short[] incoming = new short[CHUNK_FRAMES * 2];
+        byte[] out = new byte[CHUNK_FRAMES * FORMAT.getFrameSize()];
+        TrackStream playing = null;
+        TrackStream fadingIn = null;
+        int fadePosition = 0;
+
+        try {
+            while (thread == self) {
+                if (paused) {
+                    line.stop();
+                    synchronized (this) {
+                        while (paused && thread == self) wait();
+                    }
+                    line.start();
+                    continue;
+                }
+
+                String request = requestedTrack;
+                String target = fadingIn != null ? fadingIn.path : playing != null ? playing.path : null;
+                if (request != null && !request.equals(target)) {
+                    if (fadingIn != null) fadingIn.close();
+                    fadingIn = TrackStream.open(request);
+                    fadePosition = 0;
+                    // Nothing to fade from: start the new track at full volume
+                    if (playing == null) {
+                        playing = fadingIn;
+                        fadingIn = null;
+                    }
+                }
+
+                // A track that cannot be played leaves nothing to stream until another is requested
+                if (fadingIn == null && playing != null && playing.failed) {
+                    synchronized (this) {
+                        while (thread == self && playing.path.equals(requestedTrack)) wait();
+                    }
+                    continue;
+                }
+
+                int frames = CHUNK_FRAMES;
+                if (playing != null) playing.read(current, frames);
+                else Arrays.fill(current, (short) 0);
+                if (fadingIn != null) {
+                    fadingIn.read(incoming, frames);
+                    for (int f = 0; f < frames; f++) {
+                        float t = Math.min(1f, (fadePosition + f) / (float) CROSSFADE_FRAMES);
+                        for (int c = 0; c < 2; c++) {
+                            int i = 2 * f + c;
+                            current[i] = (short) (current[i] * (1 - t) + incoming[i] * t);
+                        }
+                    }
+                    fadePosition += frames;
+                    if (fadePosition >= CROSSFADE_FRAMES) {
+                        if (playing != null) playing.close();
+                        playing = fadingIn;
+                        fadingIn = null;
+                    }
+                }
+
+                for (int i = 0; i < current.length; i++) {
+                    int s = (int) (current[i] * MUSIC_GAIN);
+                    out[2 * i] = (byte) s;
+                    out[2 * i + 1] = (byte) (s >> 8);
+                }
+                line.write(out, 0, out.length);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (playing != null) playing.close();
+            if (fadingIn != null) fadingIn.close();
+            line.stop();
+            line.flush();
+            line.close();
+        }
+    }
+
+    /** One track decoded on demand, reopened at its end so it loops without a gap. */
+    private static final class TrackStream {
+        final String path;
+        private final byte[] buffer = new byte[CHUNK_FRAMES * FORMAT.getFrameSize()];
+        private AudioInputStream stream;
+        private boolean failed;
+
+        private TrackStream(String path) {
+            this.path = path;
+        }
+
+        static TrackStream open(String path) {
+            TrackStream track = new TrackStream(path);
+            track.reopen();
+            return track;
+        }
+
+        private void reopen() {
+            close();
+            URL url = MusicPlayer.class.getResource(path);
+            if (url == null) {
+                System.err.println("Could not find audio file at: " + path);
+                failed = true;
+                return;
+            }
+            try {
+                InputStream in = new BufferedInputStream(url.openStream());
+                stream = AudioMixer.toMixerFormat(AudioSystem.getAudioInputStream(in));
+            } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+                System.err.println("The audio file format is not supported: " + path + " (" + e.getMessage() + ")");
+                failed = true;
+            }
+        }
+
+        /** Fills {@code frames} stereo frames, wrapping to the start of the track as needed. */
+        void read(short[] samples, int frames) {
+            int bytesWanted = frames * FORMAT.getFrameSize();
+            int filled = 0;
+            boolean wrapped = false;
+            while (filled < bytesWanted && !failed) {
+                int n;
+                try {
+                    n = stream.read(buffer, filled, bytesWanted - filled);
+                } catch (IOException e) {
+                    System.err.println("Error while streaming music: " + e.getMessage());
+                    failed = true;
+                    break;
+                }
+                if (n > 0) {
+                    filled += n;
+                    wrapped = false;
+                } else if (!wrapped) {
+                    reopen();
+                    wrapped = true;
+                } else {
+                    break; // an empty track
+                }
+            }
+            int samplesFilled = filled / 2;
+            for (int i = 0; i < samplesFilled; i++) {
+                samples[i] = (short) ((buffer[2 * i] & 0xFF) | (buffer[2 * i + 1] << 8));
+            }
+            for (int i = samplesFilled; i < frames * 2; i++) samples[i] = 0;
+        }
+
+        void close() {
+            if (stream == null) return;
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+            stream = null;
         }
     }
 }
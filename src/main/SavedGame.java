@@ -0,0 +1,93 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import physics.SuikaWorld;
+import physics.WorldSnapshot;
+
+/**
+ * A game in progress saved to disk when the window closes, so it can be resumed
+ * from the start screen. The file is a small header (magic, format version, user
+ * and remaining timer) followed by a {@link WorldSnapshot}, written in one go
+ * through a {@link FileChannel} and moved into place atomically.
+ */
+final class SavedGame {
+
+    private static final Path SAVE_FILE = Path.of("savegame.dat");
+    private static final int MAGIC = 0x534B5356; // "SKSV"
+    private static final int VERSION = 1;
+
+    final String userId;
+    final int timeLeftSeconds;
+    final SuikaWorld world;
+
+    private SavedGame(String userId, int timeLeftSeconds, SuikaWorld world) {
+        this.userId = userId;
+        this.timeLeftSeconds = timeLeftSeconds;
+        this.world = world;
+    }
+
+    static boolean exists() {
+        return Files.isRegularFile(SAVE_FILE);
+    }
+
+    /** Writes the game; the world must not be stepping while this runs. */
+    static void save(String userId, int timeLeftSeconds, SuikaWorld world) throws IOException {
+        byte[] user = (userId == null ? "" : userId).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 4 + user.length + 4 + WorldSnapshot.byteSize(world));
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(user.length);
+        buffer.put(user);
+        buffer.putInt(timeLeftSeconds);
+        WorldSnapshot.write(world, buffer);
+        buffer.flip();
+
+        Path temp = SAVE_FILE.resolveSibling(SAVE_FILE.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+        try {
+            Files.move(temp, SAVE_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, SAVE_FILE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static SavedGame load() throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(SAVE_FILE, StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full
+            }
+        }
+        buffer.flip();
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) throw new IOException("Not a saved game");
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("Unsupported save version " + version);
+        int userLength = buffer.getInt();
+        if (userLength < 0 || userLength > buffer.remaining()) throw new IOException("Corrupt saved game");
+        byte[] user = new byte[userLength];
+        buffer.get(user);
+        int timeLeft = buffer.getInt();
+        SuikaWorld world = WorldSnapshot.read(buffer);
+        return new SavedGame(new String(user, StandardCharsets.UTF_8), timeLeft, world);
+    }
+
+    static void delete() {
+        try {
+            Files.deleteIfExists(SAVE_FILE);
+        } catch (IOException e) {
+            System.err.println("Failed to delete saved game: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package main;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import utils.VirtualThreads;
+
+/**
+ * Sends saved scores to a {@link LeaderboardServer}. Submitting only enqueues the
+ * score; a background sender posts the queue in batches, backing off exponentially
+ * while the service is unreachable. Unsent scores are kept in a spool file, so
+ * they survive restarts and go out once the service is back.
+ */
+final class ScoreClient {
+
+    private static final int MAX_BATCH = 100;
+    private static final long MIN_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+    private final URI scoresUri;
+    private final Path spoolFile;
+    private final HttpClient http;
+    private final ExecutorService senders = VirtualThreads.newThreadPerTaskExecutor("score-client");
+
+    // Unsent scores, oldest first, mirrored in the spool file; guarded by this
+    private final List<String> pending = new ArrayList<>();
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final Object spoolLock = new Object();
+    // The batch being sent, kept identical across retries so its id stays the same
+    private List<String> inFlight;
+    private long backoffMillis;
+    private long retryAtMillis;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    ScoreClient(URI serviceUri, Path spoolFile) {
+        this.scoresUri = serviceUri.resolve("/scores");
+        this.spoolFile = spoolFile;
+        this.http = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).executor(senders).build();
+        // Read before anything can be submitted, so no spool write can replace the file first
+        loadSpool();
+        if (!pending.isEmpty()) senders.execute(this::sendPending);
+    }
+
+    /** Queues a score for the service; never blocks on the network or disk. */
+    void submit(String userId, int score, long savedAtMillis) {
+        String line = URLEncoder.encode(userId, StandardCharsets.UTF_8) + " " + score + " " + savedAtMillis;
+        synchronized (this) {
+            pending.add(line);
+        }
+        // Spooled separately so a sender sleeping in backoff doesn't leave the score only in memory
+        senders.execute(() -> {
+            writeSpool();
+            sendPending();
+        });
+    }
+
+    private void loadSpool() {
+        if (!Files.isRegularFile(spoolFile)) return;
+        try {
+            List<String> spooled = Files.readAllLines(spoolFile, StandardCharsets.UTF_8);
+            synchronized (this) {
+                pending.addAll(spooled);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read score spool: " + e.getMessage());
+        }
+    }
+
+    /** Sends queued scores in batches until the queue is empty or a send fails. */
+    private void sendPending() {
+        // One sender at a time keeps batches in order; a later submit re-triggers it
+        if (!sending.compareAndSet(false, true)) return;
+        try {
+            while (true) {
+                List<String> batch;
+                long waitMillis;
+                synchronized (this) {
+                    if (inFlight == null) {
+                        if (pending.isEmpty()) return;
+                        inFlight = new ArrayList<>(pending.subList(0, Math.min(MAX_BATCH, pending.size())));
+                    }
+                    batch = inFlight;
+                    waitMillis = retryAtMillis - System.currentTimeMillis();
+                }
+                if (waitMillis > 0) {
+                    Thread.sleep(waitMillis);
+                }
+                int status = post(batch);
+                if (status == 400) {
+                    // The service will never accept this batch as it is; retrying it would block the queue
+                    keepAcceptable(batch);
+                    continue;
+                }
+                if (status != 200) {
+                    failures.incrementAndGet();
+                    synchronized (this) {
+                        // Exponential backoff with jitter so a floor of clients doesn't retry in lockstep
+                        backoffMillis = backoffMillis == 0 ? MIN_BACKOFF_MILLIS : Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+                        retryAtMillis = System.currentTimeMillis() + backoffMillis / 2
+                                + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+                    }
+                    continue;
+                }
+                sent.addAndGet(batch.size());
+                synchronized (this) {
+                    backoffMillis = 0;
+                    retryAtMillis = 0;
+                    pending.subList(0, batch.size()).clear();
+                    inFlight = null;
+                }
+                writeSpool();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sending.set(false);
+            // A submit that raced with the final empty check must still be sent
+            boolean more;
+            synchronized (this) {
+                more = !pending.isEmpty();
+            }
+            if (more && !Thread.currentThread().isInterrupted() && !senders.isShutdown()) senders.execute(this::sendPending);
+        }
+    }
+
+    /** @return The response status, or -1 if the service could not be reached. */
+    private int post(List<String> batch) throws InterruptedException {
+        // The same id on every attempt lets the service drop a batch it already stored
+        String batchId = batchId(batch);
+        HttpRequest request = HttpRequest.newBuilder(scoresUri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "text/plain; charset=utf-8")
+                .header("X-Batch-Id", batchId)
+                .POST(HttpRequest.BodyPublishers.ofString(String.join("\n", batch), StandardCharsets.UTF_8))
+                .build();
+        try {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 400) System.err.println("Leaderboard service rejected scores: " + response.body());
+            return response.statusCode();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static String batchId(List<String> batch) {
+        return UUID.nameUUIDFromBytes(String.join("\n", batch).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Replaces a rejected batch with the lines in it that parse. If all of them do,
+     * the service disagrees about the format and the whole batch is dropped.
+     */
+    private void keepAcceptable(List<String> batch) {
+        List<String> valid = new ArrayList<>();
+        for (String line : batch) {
+            String[] fields = line.split(" ");
+            try {
+                if (fields.length == 3) {
+                    URLDecoder.decode(fields[0], StandardCharsets.UTF_8);
+                    Integer.parseInt(fields[1]);
+                    Long.parseLong(fields[2]);
+                    valid.add(line);
+                }
+            } catch (IllegalArgumentException ignored) {
+                // dropped
+            }
+        }
+        if (valid.size() == batch.size()) {
+            System.err.println("Dropping " + batch.size() + " scores the leaderboard service will not accept");
+            valid.clear();
+        }
+        // Swapped in for the batch while it is still the one in flight, so nothing else touches the head
+        synchronized (this) {
+            pending.subList(0, batch.size()).clear();
+            pending.addAll(0, valid);
+            inFlight = null;
+        }
+        writeSpool();
+    }
+
+    private void writeSpool() {
+        // Snapshot and write under one lock, so the last write always holds the latest queue
+        synchronized (spoolLock) {
+            List<String> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(pending);
+            }
+            writeSpool(snapshot);
+        }
+    }
+
+    private void writeSpool(List<String> snapshot) {
+        try {
+            if (snapshot.isEmpty()) {
+                Files.deleteIfExists(spoolFile);
+                return;
+            }
+            Path temp = spoolFile.resolveSibling(spoolFile.getFileName() + ".tmp");
+            Files.write(temp, snapshot, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, spoolFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write score spool: " + e.getMessage());
+        }
+    }
+
+    synchronized int getPendingCount() { return pending.size(); }
+    long getSentCount() { return sent.get(); }
+    long getFailureCount() { return failures.get(); }
+}
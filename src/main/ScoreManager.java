@@ -0,0 +1,133 @@
+package main;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import utils.GameEvents;
+
+/**
+ * Saves and loads scores: the local leaderboard, per-user stats and, when one is
+ * configured, the shared leaderboard service. Every call may touch the disk or
+ * start a server, so the UI makes them through {@link #execute} rather than on
+ * the event dispatch thread.
+ */
+class ScoreManager {
+    private static final Path LEADERBOARD_FILE = Path.of("leaderboard.dat");
+    // The old text format; imported into the leaderboard the first time it is created
+    private static final Path LEGACY_SCORE_FILE = Path.of("scores.txt");
+    private static final Path USER_STATS_FILE = Path.of("userstats.dat");
+    // Scores not yet accepted by the shared leaderboard service
+    private static final Path SCORE_SPOOL_FILE = Path.of("score-spool.txt");
+    // -Dsuika.leaderboard.url points at a shared service; -Dsuika.leaderboard.embedded runs one in-process
+    private static final String SERVICE_URL = System.getProperty("suika.leaderboard.url");
+    private static final boolean EMBEDDED_SERVICE = Boolean.getBoolean("suika.leaderboard.embedded");
+
+    // One thread, so saves and the loads queued after them happen in order
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "score-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static Leaderboard leaderboard;
+    private static UserStats.Index userStats;
+    private static ScoreClient scoreClient;
+    private static boolean scoreClientStarted;
+
+    private static synchronized Leaderboard leaderboard() throws IOException {
+        if (leaderboard == null) leaderboard = Leaderboard.open(LEADERBOARD_FILE, LEGACY_SCORE_FILE);
+        return leaderboard;
+    }
+
+    private static synchronized UserStats.Index userStats() throws IOException {
+        if (userStats == null) userStats = UserStats.Index.open(USER_STATS_FILE, leaderboard());
+        return userStats;
+    }
+
+    /** The client for the shared leaderboard service, or null if none is configured. */
+    private static synchronized ScoreClient scoreClient() {
+        if (scoreClientStarted) return scoreClient;
+        scoreClientStarted = true;
+        String url = SERVICE_URL;
+        if (url == null && EMBEDDED_SERVICE) {
+            try {
+                LeaderboardServer server = LeaderboardServer.start(LeaderboardServer.DEFAULT_PORT, Path.of("leaderboard-server.dat"));
+                url = "http://127.0.0.1:" + server.getPort();
+            } catch (IOException e) {
+                System.err.println("Could not start the embedded leaderboard service: " + e.getMessage());
+            }
+        }
+        if (url != null) scoreClient = new ScoreClient(URI.create(url), SCORE_SPOOL_FILE);
+        return scoreClient;
+    }
+
+    /** Runs {@code task} on the score thread, after every task queued before it. */
+    public static void execute(Runnable task) {
+        WORKER.execute(task);
+    }
+
+    /** @return Whether the score was stored locally. */
+    public static boolean saveScore(String userId, int score) {
+        GameEvents.ScoreSave event = new GameEvents.ScoreSave();
+        event.begin();
+        long savedAt = System.currentTimeMillis();
+        ScoreClient client = scoreClient();
+        if (client != null) client.submit(userId, score, savedAt);
+        boolean saved = true;
+        try {
+            leaderboard().add(userId, score, savedAt);
+            userStats().record(Leaderboard.storedUserId(userId), score);
+        } catch (IOException e) {
+            saved = false;
+            showError("Error saving score: " + e.getMessage());
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.score = score;
+            event.submittedToService = client != null;
+            event.commit();
+        }
+        return saved;
+    }
+
+    /** The top scores as "user - score" lines, best first. */
+    public static List<String> loadScores() {
+        List<String> scores = new ArrayList<>();
+        try {
+            for (Leaderboard.Entry entry : leaderboard().top(Leaderboard.TOP_K)) scores.add(entry.userId + " - " + entry.score);
+        } catch (IOException e) {
+            showError("Error loading scores: " + e.getMessage());
+        }
+        return scores;
+    }
+
+    /** The user's best, mean, game count and rank, or null if they have no saved scores. */
+    public static UserStats getUserStats(String userId) {
+        try {
+            return userStats().get(Leaderboard.storedUserId(userId));
+        } catch (IOException e) {
+            System.err.println("Error loading user stats: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Number of users with at least one saved score. */
+    public static int getRankedUserCount() {
+        try {
+            return userStats().getUserCount();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Callers may be on the score thread; dialogs belong on the event dispatch thread
+    private static void showError(String message) {
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, message, "File I/O Error", JOptionPane.ERROR_MESSAGE));
+    }
+}
@@ -2,63 +2,81 @@
 package main;
 
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.Random;
 import javax.swing.*;
 import panels.*;
-import shapes.*;
+import physics.SuikaWorld;
+import shapes.BallType;
 
 public final class ShouldbeMain extends JPanel {
 
-    public static final int FPS = 75;
+    /** Render rate; physics runs on its own fixed tick, see {@link #PHYSICS_HZ}. */
+    public static final int FPS = Integer.getInteger("suika.fps", 75);
+    /** Fixed simulation rate, independent of how often the scene is drawn. */
+    public static final int PHYSICS_HZ = Integer.getInteger("suika.physicsHz", 120);
 
     private final ScenePanel scenePanel;
     private final ShapePanel shapePanel;
     private final FeaturesPanel featuresPanel;
     private final GameManager gameManager;
-    private final ArrayList<MyShape> shapesInScene = new ArrayList<>();
-    private final Random random = new Random();
-
-    private int currentScore = 0;
-    private BallType currentNextBallType;
+    private final SuikaWorld world;
 
     public ShouldbeMain(GameManager gameManager) {
+        this(gameManager, null);
+    }
+
+    /** Starts a fresh game, or continues {@code saved} if it is not null. */
+    ShouldbeMain(GameManager gameManager, SavedGame saved) {
         this.gameManager = gameManager;
         setLayout(new BorderLayout());
 
         shapePanel = new ShapePanel();
         featuresPanel = new FeaturesPanel(gameManager);
-        scenePanel = new ScenePanel(shapesInScene, gameManager, this);
+        // The real container size is only known after layout; the scene panel fixes it on the first tick
+        world = saved != null ? saved.world : new SuikaWorld(Window.WINDOW_WIDTH, Window.WINDOW_HEIGHT, System.nanoTime());
+        scenePanel = new ScenePanel(world, gameManager, this);
 
         add(shapePanel, BorderLayout.WEST);
         add(featuresPanel, BorderLayout.EAST);
         add(scenePanel, BorderLayout.CENTER);
 
-        generateNewNextBall();
+        showNextBall(world.getNextBall());
         String userId = gameManager.getCurrentUserId();
         if (userId != null) {
             featuresPanel.setUserId(userId);
         }
-        featuresPanel.setScore(currentScore);
-        featuresPanel.startTimer();
+        featuresPanel.setScore(world.score());
+        if (saved != null) featuresPanel.startTimer(saved.timeLeftSeconds);
+        else featuresPanel.startTimer();
 
         scenePanel.setFocusable(true);
     }
 
-    public void generateNewNextBall() {
-        int initialLevelsRange = 3;
-        currentNextBallType = BallType.values()[random.nextInt(initialLevelsRange)];
-        shapePanel.setNextBallType(currentNextBallType);
-        scenePanel.setNextBallTypeForDropping(currentNextBallType);
+    /** Shows the world's upcoming ball in the side panel. */
+    public void showNextBall(BallType next) {
+        shapePanel.setNextBallType(next);
     }
 
-    public void addScore(int points) {
-        currentScore += points;
-        featuresPanel.setScore(currentScore);
+    /** Updates the score display; safe to call from the animation thread. */
+    public void showScore(int score) {
+        SwingUtilities.invokeLater(() -> featuresPanel.setScore(score));
     }
 
+    /** The score as of the last published frame; the world itself belongs to the animation thread. */
     public int getScore() {
-        return currentScore;
+        return scenePanel.getPublishedScore();
+    }
+
+    public SuikaWorld getWorld() {
+        return world;
+    }
+
+    public int getTimeLeftSeconds() {
+        return featuresPanel.getTimeLeftSeconds();
+    }
+
+    /** Whether the game has stopped stepping its world since {@link #prepareToClose}. */
+    public boolean isStopped() {
+        return scenePanel == null || scenePanel.isAnimationStopped();
     }
 
     /**
@@ -5,13 +5,13 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.RoundRectangle2D;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Random;
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.AbstractBorder;
+import physics.StressScene;
+import utils.ImageCache;
+import utils.StartupTimings;
 
 /**
  * A custom JTextField with a rounded border, padding, and placeholder text.
@@ -156,6 +156,10 @@ public final class StartScreen extends JPanel implements ActionListener {
     private final GameManager gameManager;
     // --- MODIFIED: Use the new StyledTextField ---
     private final StyledTextField userIdField;
+    private final JButton resumeButton = new JButton("Resume Saved Game");
+    private final JButton stressButton = new JButton("Stress Test");
+    private JButton startButton;
+    private final JProgressBar loadingBar = new JProgressBar();
     private final ArrayList<BouncingCircle> circles = new ArrayList<>();
     private final Timer timer;
     private static final int NUM_CIRCLES = 15, WINDOW_WIDTH = 800, WINDOW_HEIGHT = 550;
@@ -187,15 +191,9 @@ public final class StartScreen extends JPanel implements ActionListener {
     }
     
     private void loadResources() {
-        try {
-            URL bgUrl = getClass().getResource("/icons/start_bg.png");
-            if (bgUrl != null) {
-                backgroundImage = ImageIO.read(bgUrl);
-            } else {
-                System.err.println("Start screen background not found!");
-            }
-        } catch (IOException e) {
-            System.err.println("Failed to load start screen background.");
+        backgroundImage = ImageCache.getImage("/icons/start_bg.png");
+        if (backgroundImage == null) {
+            System.err.println("Start screen background not found!");
         }
     }
 
@@ -222,8 +220,9 @@ public final class StartScreen extends JPanel implements ActionListener {
         buttonPanel.setOpaque(false);
 
         int buttonWidth = 80;
-        JButton startButton = createScaledButton("/icons/playButton.png", buttonWidth);
+        startButton = createScaledButton("/icons/playButton.png", buttonWidth);
         startButton.addActionListener(e -> {
+            StartupTimings.mark("play pressed");
             stopAnimation();
             String userId = userIdField.getText();
             // Do not start game if the placeholder is still showing
@@ -240,21 +239,76 @@ public final class StartScreen extends JPanel implements ActionListener {
 
         gbc.insets = new Insets(20, 10, 10, 10);
         add(buttonPanel, gbc);
+
+        // Only shown while a game saved on exit is waiting to be continued
+        resumeButton.setFont(new Font("Arial", Font.PLAIN, 16));
+        resumeButton.addActionListener(e -> {
+            stopAnimation();
+            gameManager.resumeGame();
+        });
+        gbc.insets = new Insets(10, 10, 10, 10);
+        add(resumeButton, gbc);
+        refreshResumeOption();
+
+        // Not part of the game: fills a big container to see where the engine gives out
+        stressButton.setFont(new Font("Arial", Font.PLAIN, 12));
+        stressButton.addActionListener(e -> showStressTestDialog());
+        gbc.insets = new Insets(0, 10, 10, 10);
+        add(stressButton, gbc);
+        gbc.insets = new Insets(10, 10, 10, 10);
+
+        // Play waits for the game's images and sounds, so starting a game never stalls on a decode
+        AssetPreloader assets = gameManager.getAssets();
+        loadingBar.setMaximum(assets.getTotal());
+        loadingBar.setStringPainted(true);
+        loadingBar.setString("Loading...");
+        add(loadingBar, gbc);
+        startButton.setEnabled(false);
+        resumeButton.setEnabled(false);
+        stressButton.setEnabled(false);
+        assets.addProgressListener(loadingBar::setValue);
+        assets.whenDone(() -> {
+            loadingBar.setVisible(false);
+            startButton.setEnabled(true);
+            resumeButton.setEnabled(true);
+            stressButton.setEnabled(true);
+            revalidate();
+        });
+    }
+
+    /** Asks for the stress test's ball count, drop rate and merging, then starts it. */
+    private void showStressTestDialog() {
+        JSpinner balls = new JSpinner(new SpinnerNumberModel(StressScene.DEFAULT_BALLS, 0, 100_000, 500));
+        JSpinner dropRate = new JSpinner(new SpinnerNumberModel(0, 0, 1000, 5));
+        JCheckBox merging = new JCheckBox("Merge touching balls of the same type");
+        JPanel form = new JPanel(new GridLayout(0, 2, 8, 8));
+        form.add(new JLabel("Balls at start:"));
+        form.add(balls);
+        form.add(new JLabel("Drops per second:"));
+        form.add(dropRate);
+        form.add(merging);
+        int choice = JOptionPane.showConfirmDialog(this, form, "Stress Test", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) return;
+        gameManager.startStressTest(new StressScene((Integer) balls.getValue(),
+                ((Number) dropRate.getValue()).doubleValue(), merging.isSelected()));
+    }
+
+    /** Shows the resume button only if there is a saved game to resume. */
+    public void refreshResumeOption() {
+        resumeButton.setVisible(gameManager.hasSavedGame());
+        revalidate();
     }
     
     private JButton createScaledButton(String imagePath, int targetWidth) {
         JButton button;
         try {
-            URL imgUrl = getClass().getResource(imagePath);
-            if (imgUrl == null) {
+            BufferedImage originalImage = ImageCache.getImage(imagePath);
+            if (originalImage == null) {
                 System.err.println("Button image not found: " + imagePath);
                 return new JButton("?"); 
             }
             
-            ImageIcon originalIcon = new ImageIcon(imgUrl);
-            Image originalImage = originalIcon.getImage();
-            Image scaledImage = originalImage.getScaledInstance(targetWidth, -1, Image.SCALE_SMOOTH);
-            button = new JButton(new ImageIcon(scaledImage));
+            button = new JButton(new ImageIcon(ImageCache.scaleToWidth(originalImage, targetWidth)));
             
         } catch (Exception e) {
             e.printStackTrace();
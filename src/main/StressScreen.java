@@ -0,0 +1,31 @@
+package main;
+
+import java.awt.*;
+import javax.swing.*;
+import panels.ScenePanel;
+import panels.StressReadout;
+import physics.StressScene;
+
+/**
+ * The stress-test screen: a {@link StressScene}'s world, scaled to fit, next to a
+ * live readout of how the engine copes as the ball count climbs.
+ */
+final class StressScreen extends JPanel {
+
+    private final ScenePanel scenePanel;
+    private final StressReadout readout;
+
+    StressScreen(GameManager gameManager, StressScene stress) {
+        setLayout(new BorderLayout());
+        scenePanel = new ScenePanel(stress.createWorld(), stress);
+        readout = new StressReadout(scenePanel, stress, gameManager::showStartScreen);
+        add(scenePanel, BorderLayout.CENTER);
+        add(readout, BorderLayout.EAST);
+        scenePanel.setFocusable(true);
+    }
+
+    void prepareToClose() {
+        scenePanel.stopAnimation();
+        readout.stop();
+    }
+}
@@ -0,0 +1,227 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running totals for one user's saved scores: best, game count, mean and the
+ * last {@link #RECENT_SCORES} scores.
+ */
+final class UserStats {
+
+    static final int RECENT_SCORES = 10;
+
+    final String userId;
+    private int best;
+    private int games;
+    private long total;
+    // Ring buffer of recent scores; recentStart is the oldest
+    private final int[] recent = new int[RECENT_SCORES];
+    private int recentStart;
+    private int recentCount;
+    // Position among all users by best score, 1 for the best; kept current by Index
+    private int rank;
+
+    private UserStats(String userId) {
+        this.userId = userId;
+    }
+
+    private void record(int score) {
+        if (games == 0 || score > best) best = score;
+        games++;
+        total += score;
+        if (recentCount < RECENT_SCORES) {
+            recent[(recentStart + recentCount++) % RECENT_SCORES] = score;
+        } else {
+            recent[recentStart] = score;
+            recentStart = (recentStart + 1) % RECENT_SCORES;
+        }
+    }
+
+    int getBest() { return best; }
+    int getGames() { return games; }
+    double getMean() { return games == 0 ? 0 : (double) total / games; }
+    int getRank() { return rank; }
+
+    /** The most recent scores, oldest first. */
+    int[] getRecentScores() {
+        int[] scores = new int[recentCount];
+        for (int i = 0; i < recentCount; i++) scores[i] = recent[(recentStart + i) % RECENT_SCORES];
+        return scores;
+    }
+
+    /**
+     * Every user's stats, looked up by name, plus a ranking by best score that is
+     * repaired around a user whenever their best improves. Saved as a compact binary
+     * file that also records how many leaderboard records it covers, so it can be
+     * rebuilt from the leaderboard if the two ever disagree.
+     */
+    static final class Index {
+
+        private static final int MAGIC = 0x534B5553; // "SKUS"
+        private static final int VERSION = 1;
+
+        private final Path file;
+        private final Map<String, UserStats> byUser = new HashMap<>();
+        private final List<UserStats> ranking = new ArrayList<>();
+        private int recordsCovered;
+
+        private Index(Path file) {
+            this.file = file;
+        }
+
+        /** Loads the index, or rebuilds it from the leaderboard if it is missing, unreadable or stale. */
+        static Index open(Path file, Leaderboard leaderboard) {
+            Index index = new Index(file);
+            try {
+                if (Files.isRegularFile(file)) index.load();
+            } catch (IOException e) {
+                System.err.println("Rebuilding user stats: " + e.getMessage());
+                index.clear();
+            }
+            if (index.recordsCovered != leaderboard.size()) {
+                index.clear();
+                for (int i = 0, n = leaderboard.size(); i < n; i++) {
+                    Leaderboard.Entry entry = leaderboard.readRecord(i);
+                    index.add(entry.userId, entry.score);
+                }
+                index.saveQuietly();
+            }
+            return index;
+        }
+
+        UserStats get(String userId) {
+            return byUser.get(userId);
+        }
+
+        int getUserCount() {
+            return ranking.size();
+        }
+
+        /** Folds a newly saved score into its user's stats and saves the index. */
+        void record(String userId, int score) {
+            add(userId, score);
+            saveQuietly();
+        }
+
+        private void add(String userId, int score) {
+            UserStats stats = byUser.get(userId);
+            if (stats == null) {
+                stats = new UserStats(userId);
+                byUser.put(userId, stats);
+                stats.record(score);
+                stats.rank = ranking.size() + 1;
+                ranking.add(stats);
+                moveUp(stats);
+            } else {
+                int oldBest = stats.best;
+                stats.record(score);
+                if (stats.best > oldBest) moveUp(stats);
+            }
+            recordsCovered++;
+        }
+
+        // Walks a user towards the top past everyone with a lower best, renumbering as it goes
+        private void moveUp(UserStats stats) {
+            int i = stats.rank - 1;
+            while (i > 0 && ranking.get(i - 1).best < stats.best) {
+                UserStats passed = ranking.get(i - 1);
+                ranking.set(i, passed);
+                passed.rank = i + 1;
+                i--;
+            }
+            ranking.set(i, stats);
+            stats.rank = i + 1;
+        }
+
+        private void clear() {
+            byUser.clear();
+            ranking.clear();
+            recordsCovered = 0;
+        }
+
+        private void load() throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.remaining() < 16 || buffer.getInt() != MAGIC) throw new IOException("Not a user stats file");
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("Unsupported user stats version " + version);
+            int covered = buffer.getInt();
+            int users = buffer.getInt();
+            try {
+                for (int u = 0; u < users; u++) {
+                    byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                    buffer.get(name);
+                    UserStats stats = new UserStats(new String(name, StandardCharsets.UTF_8));
+                    stats.best = buffer.getInt();
+                    stats.games = buffer.getInt();
+                    stats.total = buffer.getLong();
+                    stats.recentCount = Math.min(buffer.get(), RECENT_SCORES);
+                    for (int i = 0; i < stats.recentCount; i++) stats.recent[i] = buffer.getInt();
+                    // Users are saved in rank order
+                    stats.rank = ranking.size() + 1;
+                    ranking.add(stats);
+                    byUser.put(stats.userId, stats);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupt user stats file", e);
+            }
+            recordsCovered = covered;
+        }
+
+        private void saveQuietly() {
+            try {
+                save();
+            } catch (IOException e) {
+                System.err.println("Failed to save user stats: " + e.getMessage());
+            }
+        }
+
+        private void save() throws IOException {
+            List<byte[]> names = new ArrayList<>(ranking.size());
+            int size = 16;
+            for (UserStats stats : ranking) {
+                byte[] name = stats.userId.getBytes(StandardCharsets.UTF_8);
+                names.add(name);
+                size += 2 + name.length + 4 + 4 + 8 + 1 + 4 * stats.recentCount;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(recordsCovered);
+            buffer.putInt(ranking.size());
+            for (int u = 0; u < ranking.size(); u++) {
+                UserStats stats = ranking.get(u);
+                buffer.putShort((short) names.get(u).length);
+                buffer.put(names.get(u));
+                buffer.putInt(stats.best);
+                buffer.putInt(stats.games);
+                buffer.putLong(stats.total);
+                buffer.put((byte) stats.recentCount);
+                for (int score : stats.getRecentScores()) buffer.putInt(score);
+            }
+            buffer.flip();
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package main;
 
 import java.awt.EventQueue;
-import java.net.URL; // Import URL for resource loading
-import javax.swing.ImageIcon; // Import ImageIcon
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
 import javax.swing.JFrame;
+import physics.StressScene;
+import utils.FlightRecording;
+import utils.ImageCache;
+import utils.StartupTimings;
 
 public class Window extends JFrame {
 
@@ -11,42 +16,66 @@ public class Window extends JFrame {
     public static final int WINDOW_HEIGHT = 550;
 
     private GameManager gameManager;
-    private MusicPlayer musicPlayer; // ADD THIS LINE
+    private final MusicPlayer musicPlayer = new MusicPlayer();
 
-    public Window() {
+    public Window(AssetPreloader assets) {
         super("Hololive Suika");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setResizable(false);
         
         // --- ADDED: Set Application Icon ---
-        try {
-            URL iconURL = getClass().getResource("/icons/icon.png"); // Path to your icon
-            if (iconURL != null) {
-                ImageIcon appIcon = new ImageIcon(iconURL);
-                setIconImage(appIcon.getImage());
-            } else {
-                System.err.println("App icon not found!");
-            }
-        } catch (Exception e) {
-            System.err.println("Error loading app icon: " + e.getMessage());
+        BufferedImage appIcon = ImageCache.getImage("/icons/icon.png");
+        if (appIcon != null) {
+            setIconImage(appIcon);
+        } else {
+            System.err.println("App icon not found!");
         }
         // --- End of new code ---
 
         setSize(WINDOW_WIDTH, WINDOW_HEIGHT);
         setLocationRelativeTo(null); 
 
-        gameManager = new GameManager(this);
+        gameManager = new GameManager(this, musicPlayer, assets);
+        // -Dsuika.stress=<balls> goes straight to the stress test once everything is loaded
+        StressScene stress = StressScene.fromSystemProperties();
+        if (stress != null) assets.whenDone(() -> gameManager.startStressTest(stress));
+        // Keep the board when the window is closed mid-game; the start screen offers to resume it
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                StartupTimings.mark("window visible");
+            }
+
+            @Override
+            public void windowClosing(WindowEvent e) {
+                gameManager.saveGameInProgress();
+            }
+
+            @Override
+            public void windowIconified(WindowEvent e) {
+                musicPlayer.pause();
+            }
+
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                musicPlayer.resume();
+            }
+        });
 
-        // --- ADD THIS BLOCK TO START THE BACKGROUND MUSIC ---
-        musicPlayer = new MusicPlayer();
-        // Assuming your 'audio' folder is at the root of your classpath (like 'src' or 'resources').
-        musicPlayer.playMusic("/audio/main.wav");
-        // -----------------------------------------------
+        // Streams on its own thread, so the window never waits for the track to load
+        musicPlayer.playMusic(MusicPlayer.START_TRACK);
 
         setVisible(true);
     }
 
     public static void main(String args[]) {
-        EventQueue.invokeLater(() -> new Window());
+        // Starting Flight Recorder takes a moment, so it happens alongside everything else
+        Thread recorder = new Thread(FlightRecording::start, "recording-start");
+        recorder.setDaemon(true);
+        recorder.start();
+        // Decoding starts before the window exists and carries on while the start screen shows
+        AssetPreloader assets = new AssetPreloader();
+        assets.start();
+        EventQueue.invokeLater(() -> new Window(assets));
     }
 }
@@ -1,9 +1,10 @@
 package panels;
 
 import java.awt.*;
-import java.net.URL;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
 import main.GameManager;
+import utils.ImageCache;
 
 
 public class FeaturesPanel extends JPanel {
@@ -17,7 +18,8 @@ public class FeaturesPanel extends JPanel {
     private final JLabel timerLabel = new JLabel("Time: 5:00", SwingConstants.CENTER);
     private final JButton endGameButton = new JButton("End Game");
     private ImageIcon scoreBackgroundImage;
-    private ImageIcon panelBackgroundImage;
+    private BufferedImage panelBackgroundImage;
+    private final StaticLayer background = new StaticLayer(this::paintBackground);
 
     private final Timer gameTimer;
     private int timeLeftInSeconds = INITIAL_TIME_SECONDS;
@@ -101,13 +103,22 @@ public class FeaturesPanel extends JPanel {
     }
 
     public void startTimer() {
+        startTimer(INITIAL_TIME_SECONDS);
+    }
+
+    /** Starts the countdown from {@code seconds}, e.g. what was left in a resumed game. */
+    public void startTimer(int seconds) {
         if (!gameTimer.isRunning()) {
-            timeLeftInSeconds = INITIAL_TIME_SECONDS;
-            timerLabel.setText("Time: 5:00");
+            timeLeftInSeconds = seconds;
+            timerLabel.setText(String.format("Time: %d:%02d", seconds / 60, seconds % 60));
             gameTimer.start();
         }
     }
 
+    public int getTimeLeftSeconds() {
+        return timeLeftInSeconds;
+    }
+
     public void stopTimer() {
         if (gameTimer.isRunning()) {
             gameTimer.stop();
@@ -115,28 +126,17 @@ public class FeaturesPanel extends JPanel {
     }
 
     private void loadResources() {
-        try {
-            // Load the panel background image
-            URL bgUrl = getClass().getResource("/icons/start_bg.png");
-            if (bgUrl != null) {
-                panelBackgroundImage = new ImageIcon(bgUrl);
-            } else {
-                System.err.println("Panel background image not found: /icons/panel_bg.png");
-            }
+        panelBackgroundImage = ImageCache.getImage("/icons/start_bg.png");
+        if (panelBackgroundImage == null) {
+            System.err.println("Panel background image not found: /icons/start_bg.png");
+        }
 
-            URL imgUrl = getClass().getResource("/icons/score.png");
-            if (imgUrl != null) {
-                ImageIcon originalIcon = new ImageIcon(imgUrl);
-                Image originalImage = originalIcon.getImage();
-                int newWidth = PANEL_WIDTH - 20;
-                Image scaledImage = originalImage.getScaledInstance(newWidth, -1, Image.SCALE_SMOOTH);
-                scoreBackgroundImage = new ImageIcon(scaledImage);
-                scoreLabel.setIcon(scoreBackgroundImage);
-            } else {
-                System.err.println("Score background image not found: /icons/score.png");
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to load score or panel background image.");
+        BufferedImage original = ImageCache.getImage("/icons/score.png");
+        if (original != null) {
+            scoreBackgroundImage = new ImageIcon(ImageCache.scaleToWidth(original, PANEL_WIDTH - 20));
+            scoreLabel.setIcon(scoreBackgroundImage);
+        } else {
+            System.err.println("Score background image not found: /icons/score.png");
         }
     }
 
@@ -145,7 +145,9 @@ public class FeaturesPanel extends JPanel {
     }
 
     public void setScore(int score) {
-        scoreLabel.setText(String.valueOf(score));
+        String text = String.valueOf(score);
+        // Merges that score nothing new must not repaint the panel
+        if (!text.equals(scoreLabel.getText())) scoreLabel.setText(text);
     }
 
     @Override
@@ -156,19 +158,23 @@ public class FeaturesPanel extends JPanel {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        // The cropped background only changes with the panel's size
+        background.draw(g, getGraphicsConfiguration(), getWidth(), getHeight());
+    }
+
+    private void paintBackground(Graphics2D g, int width, int height) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, width, height);
         if (panelBackgroundImage != null) {
-            Image img = panelBackgroundImage.getImage();
-            int imgW = img.getWidth(this);
-            int imgH = img.getHeight(this);
-            int panelW = getWidth();
-            int panelH = getHeight();
+            int imgW = panelBackgroundImage.getWidth();
+            int imgH = panelBackgroundImage.getHeight();
 
             // Draw only the top-left portion of the image that fits the panel (cut, not stretch)
             g.drawImage(
-                img,
-                0, 0, panelW, panelH, // destination rectangle (panel)
-                0, 0, Math.min(panelW, imgW), Math.min(panelH, imgH), // source rectangle (image)
-                this
+                panelBackgroundImage,
+                0, 0, width, height, // destination rectangle (panel)
+                0, 0, Math.min(width, imgW), Math.min(height, imgH), // source rectangle (image)
+                null
             );
         }
     }
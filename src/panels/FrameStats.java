@@ -0,0 +1,74 @@
+package panels;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A fixed-size ring of per-frame measurements with one writer and any number of
+ * readers, and no locks. The writer fills in the current row with {@link #put} and
+ * publishes it with {@link #commit}; readers copy the most recent rows and discard
+ * any the writer may have overwritten while they were copying.
+ */
+final class FrameStats {
+
+    private static final int CAPACITY = 512; // power of two
+    private static final int MASK = CAPACITY - 1;
+
+    private final int fields;
+    private final long[] rows;
+    // Rows committed so far; the volatile write in commit publishes the row's values
+    private volatile long committed;
+    // The writer's own copy of committed, so put needs no volatile read
+    private long writeIndex;
+
+    FrameStats(int fields) {
+        this.fields = fields;
+        this.rows = new long[CAPACITY * fields];
+    }
+
+    /** Writer only: sets a field of the row being built. */
+    void put(int field, long value) {
+        rows[(int) (writeIndex & MASK) * fields + field] = value;
+    }
+
+    /** Writer only: publishes the row being built and starts the next one. */
+    void commit() {
+        committed = ++writeIndex;
+        // Keeps the next row's puts after the count that tells readers its slot is being reused
+        VarHandle.storeStoreFence();
+    }
+
+    /**
+     * Copies one field of up to {@code out.length} of the most recent rows into
+     * {@code out}, oldest first.
+     * @return The number of values copied.
+     */
+    int recent(int field, long[] out) {
+        long end = committed;
+        int n = (int) Math.min(Math.min(out.length, end), CAPACITY);
+        long start = end - n;
+        for (int k = 0; k < n; k++) out[k] = rows[(int) ((start + k) & MASK) * fields + field];
+        // Plain loads may otherwise be reordered past the volatile read below, escaping its check
+        VarHandle.acquireFence();
+        // Rows the writer reached while we copied may hold newer values; drop them. That
+        // includes the slot of the row it is building, which it may be writing to right now.
+        long overwritten = committed - CAPACITY + 1;
+        if (overwritten > start) {
+            int skip = (int) Math.min(n, overwritten - start);
+            System.arraycopy(out, skip, out, 0, n - skip);
+            n -= skip;
+        }
+        return n;
+    }
+
+    /** Sorts the first {@code n} values in place, ready for {@link #percentile}. */
+    static void sort(long[] values, int n) {
+        Arrays.sort(values, 0, n);
+    }
+
+    /** The {@code p} percentile (0 to 1) of the first {@code n} values, which must be sorted. */
+    static long percentile(long[] sorted, int n, double p) {
+        if (n == 0) return 0;
+        return sorted[Math.min(n - 1, (int) (p * n))];
+    }
+}
@@ -0,0 +1,171 @@
+package panels;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.lang.management.ManagementFactory;
+import utils.AudioMixer;
+
+/**
+ * An overlay of where each frame's time goes: rolling p50/p95/p99 of the frame
+ * interval and of the physics, collision, merge and paint phases, plus ball and
+ * candidate-pair counts, how much the animation thread allocates per frame, and
+ * the sound mixer's active voices and underruns.
+ * <p>
+ * Recording is always on so the numbers are ready the moment the overlay is
+ * shown; it costs a handful of clock reads per frame, and the overlay reports that
+ * cost as a share of frame time. The text is rebuilt a few times a second, not
+ * every frame.
+ */
+final class PerformanceHud {
+
+    // Fields of the animation thread's per-frame rows
+    private static final int FRAME = 0, PHYSICS = 1, COLLISION = 2, MERGE = 3, BALLS = 4, PAIRS = 5, ALLOCATED = 6, COST = 7;
+    private static final int FIELDS = 8;
+    private static final int WINDOW = 256;
+    private static final long REFRESH_NANOS = 250_000_000L;
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 160);
+    private static final Rectangle BOUNDS = new Rectangle(8, 8, 330, 145);
+
+    private final FrameStats frames = new FrameStats(FIELDS);
+    // Painting runs on the EDT or the animation thread, so it gets a ring of its own
+    private final FrameStats paints = new FrameStats(1);
+    private final com.sun.management.ThreadMXBean threads = allocationCounter();
+    // Cost of one clock read, measured once; used to charge the phase timers to the instrumentation
+    private final long clockReadNanos = measureClockRead();
+
+    private volatile boolean visible = Boolean.getBoolean("suika.hud");
+
+    // Animation thread only
+    private long lastAllocated = -1;
+    private long lastCost;
+
+    // Whichever thread draws the overlay; only one does at a time
+    private final long[] scratch = new long[WINDOW];
+    private final String[] lines = new String[8];
+    private long linesBuiltNanos;
+
+    boolean isVisible() { return visible; }
+
+    void toggle() { visible = !visible; }
+
+    Rectangle getBounds() { return BOUNDS; }
+
+    /**
+     * Records one frame on the animation thread.
+     * @param clockReads How many times the phase timers read the clock this frame.
+     */
+    void recordFrame(long frameNanos, long physicsNanos, long collisionNanos, long mergeNanos, int balls, int pairs, int clockReads) {
+        long start = System.nanoTime();
+        long allocated = threads != null ? threads.getCurrentThreadAllocatedBytes() : -1;
+        frames.put(FRAME, frameNanos);
+        frames.put(PHYSICS, physicsNanos);
+        frames.put(COLLISION, collisionNanos);
+        frames.put(MERGE, mergeNanos);
+        frames.put(BALLS, balls);
+        frames.put(PAIRS, pairs);
+        frames.put(ALLOCATED, lastAllocated >= 0 && allocated >= 0 ? allocated - lastAllocated : 0);
+        // Recording a row can't include its own cost, so each row carries the previous frame's
+        frames.put(COST, lastCost);
+        frames.commit();
+        lastAllocated = allocated;
+        lastCost = System.nanoTime() - start + (long) (clockReads + 2) * clockReadNanos;
+    }
+
+    /** Records how long one paint took, on whichever thread painted. */
+    void recordPaint(long paintNanos) {
+        paints.put(0, paintNanos);
+        paints.commit();
+    }
+
+    /** True if the text is due to be rebuilt, so the overlay's area needs repainting. */
+    boolean isStale(long nowNanos) {
+        return visible && nowNanos - linesBuiltNanos >= REFRESH_NANOS;
+    }
+
+    void draw(Graphics2D g) {
+        if (!visible) return;
+        long now = System.nanoTime();
+        if (now - linesBuiltNanos >= REFRESH_NANOS || lines[0] == null) {
+            buildLines();
+            linesBuiltNanos = now;
+        }
+        g.setColor(BACKGROUND);
+        g.fillRect(BOUNDS.x, BOUNDS.y, BOUNDS.width, BOUNDS.height);
+        g.setFont(FONT);
+        g.setColor(Color.WHITE);
+        FontMetrics metrics = g.getFontMetrics();
+        int y = BOUNDS.y + 4 + metrics.getAscent();
+        for (String line : lines) {
+            g.drawString(line, BOUNDS.x + 6, y);
+            y += metrics.getHeight() + 2;
+        }
+    }
+
+    private void buildLines() {
+        lines[0] = timing("frame  ", frames, FRAME);
+        lines[1] = timing("physics", frames, PHYSICS);
+        lines[2] = timing("collide", frames, COLLISION);
+        lines[3] = timing("merge  ", frames, MERGE);
+        lines[4] = timing("paint  ", paints, 0);
+        int n = frames.recent(BALLS, scratch);
+        long balls = n > 0 ? scratch[n - 1] : 0;
+        n = frames.recent(PAIRS, scratch);
+        long pairs = n > 0 ? scratch[n - 1] : 0;
+        double allocatedKb = mean(frames, ALLOCATED) / 1024.0;
+        lines[5] = String.format("balls %d  pairs %d  alloc %s", balls, pairs,
+                threads != null ? String.format("%.1f KB/frame", allocatedKb) : "n/a");
+        AudioMixer mixer = AudioMixer.get();
+        lines[6] = String.format("voices %d/%d  underruns %d  stolen %d", mixer.getActiveVoices(),
+                AudioMixer.MAX_VOICES, mixer.getUnderruns(), mixer.getVoicesStolen());
+        double cost = mean(frames, COST);
+        double frame = mean(frames, FRAME);
+        lines[7] = String.format("instrumentation %.3f%% of frame time  [F3]", frame > 0 ? 100.0 * cost / frame : 0.0);
+    }
+
+    /** The {@code p} percentile of recent frame intervals; safe from any thread. */
+    long percentile(double p) {
+        long[] values = new long[WINDOW];
+        int n = frames.recent(FRAME, values);
+        FrameStats.sort(values, n);
+        return FrameStats.percentile(values, n, p);
+    }
+
+    private String timing(String label, FrameStats stats, int field) {
+        int n = stats.recent(field, scratch);
+        FrameStats.sort(scratch, n);
+        return String.format("%s p50 %6.2f  p95 %6.2f  p99 %6.2f ms", label,
+                FrameStats.percentile(scratch, n, 0.50) / 1e6, FrameStats.percentile(scratch, n, 0.95) / 1e6,
+                FrameStats.percentile(scratch, n, 0.99) / 1e6);
+    }
+
+    private double mean(FrameStats stats, int field) {
+        int n = stats.recent(field, scratch);
+        if (n == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < n; i++) sum += scratch[i];
+        return (double) sum / n;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            if (!threads.isThreadAllocatedMemoryEnabled()) threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+
+    private static long measureClockRead() {
+        int reads = 10_000;
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < reads; i++) sink += System.nanoTime();
+        long elapsed = System.nanoTime() - start;
+        // Keeps the loop from being optimized away
+        return sink == 42 ? 0 : Math.max(1, elapsed / reads);
+    }
+}
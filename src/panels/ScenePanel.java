@@ -3,188 +3,418 @@ package panels;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.net.URL;
-import java.util.*;
-import javax.imageio.ImageIO;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.swing.*;
 import main.GameManager;
 import main.ShouldbeMain;
+import physics.MergeQueue;
+import physics.RenderSnapshot;
+import physics.Replay;
+import physics.StressScene;
+import physics.SuikaWorld;
+import shapes.BallSprites;
 import shapes.BallType;
 import shapes.Circle;
-import shapes.MyShape;
+import utils.FlightRecording;
+import utils.GameEvents;
+import utils.ImageCache;
 import utils.SoundUtils;
+import utils.StartupTimings;
 
+/**
+ * Draws a {@link SuikaWorld} and turns mouse input into drops. The world itself is
+ * stepped on this panel's animation thread at a fixed tick rate and is never touched
+ * by the EDT: each frame is published as a {@link RenderSnapshot}, and input flows
+ * back through a queue drained at the start of each tick.
+ */
 public class ScenePanel extends JPanel implements MouseListener, MouseMotionListener {
 
-    private final ArrayList<MyShape> shapes;
+    public static final String MERGE_SOUND = "/audio/combine.wav";
+
+    private final SuikaWorld world;
     private final GameManager gameManager;
     private final ShouldbeMain mainPanel;
 
     private volatile boolean running = true;
     private Thread animationThread;
 
-    private BallType nextBallTypeToDrop;
-    private Point mouseDropPos = new Point();
-    private boolean canDropBall = true;
+    // Fixed-timestep clock: physics always advances in steps of 1 / physicsHz
+    private static final int MAX_STEPS_PER_FRAME = 8;
+    private final int physicsHz = ShouldbeMain.PHYSICS_HZ;
+
+    // Frames handed from the animation thread to the painter without locking
+    private final RenderSnapshot.Exchange frames = new RenderSnapshot.Exchange();
+
+    // Clicks are queued here by the EDT and applied at the start of the next tick
+    private final Queue<Integer> pendingDrops = new ConcurrentLinkedQueue<>();
+    // Every game is recorded so it can be replayed with physics.ReplayPlayer
+    private static final boolean RECORD_REPLAYS = !"false".equals(System.getProperty("suika.record"));
+    private static final String REPLAY_DIR = "replays";
+    private Replay.Recorder recorder;
+    private boolean started;
+
+    // Optional active rendering: the animation thread draws into a Canvas and flips it itself
+    private static final boolean ACTIVE_RENDERING = Boolean.getBoolean("suika.activeRendering");
+    private static final int MAX_PRESENT_FAILURES = 3;
+    private volatile Canvas activeCanvas;
+    private BufferStrategy bufferStrategy;
+    private int presentFailures;
+    private volatile long lastPresentNanos;
+    private volatile long framesPresented;
+    private boolean firstFrameDrawn;
+
+    // Written by the EDT, read by whichever thread renders
+    private volatile Point mouseDropPos = new Point();
+    private volatile boolean canDropBall = true;
     private static final long DROP_COOLDOWN = 500;
     private long lastDropTime = 0;
 
-    private static final int GAME_OVER_LINE_Y_OFFSET = 50;
-    private long gameOverCheckStartTime = -1;
-    private static final long GAME_OVER_THRESHOLD_MS = 2000;
-
     private BufferedImage backgroundImage;
 
-    public ScenePanel(ArrayList<MyShape> shapes, GameManager gameManager, ShouldbeMain mainPanel) {
-        this.shapes = shapes;
+    // Layers: a cached background, the balls, and an overlay with the preview and game-over line
+    private final StaticLayer backgroundLayer = new StaticLayer(this::paintBackground);
+    private static final AlphaComposite PREVIEW_COMPOSITE = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f);
+    private static final Stroke LINE_STROKE = new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10, new float[] {8, 8}, 0);
+    private static final Color LINE_COLOR = new Color(200, 60, 60, 110);
+
+    // Swing mode repaints only what changed: moved balls and the preview, this frame and last
+    private static final int DIRTY_PADDING = 2;
+    private final double[] motionBounds = new double[4];
+    private final Rectangle lastMotionRect = new Rectangle();
+    private final Rectangle lastPreviewRect = new Rectangle();
+    private long lastBodyChanges = -1;
+    private int lastWidth, lastHeight;
+
+    // Toggled with F3 (or shown from the start with -Dsuika.hud=true)
+    private final PerformanceHud hud = new PerformanceHud();
+
+    // Flyweight used to draw each body in turn
+    private final Circle drawView = new Circle();
+    // Display scale of the graphics the drop preview was last drawn on; looking it up allocates
+    private GraphicsConfiguration previewConfig;
+    private double previewScale = 1.0;
+
+    // Set in stress-test mode only: no player, no game over, and a larger container scaled to fit
+    private final StressScene stress;
+    private static final Color CONTAINER_OUTLINE = new Color(0, 0, 0, 90);
+    // Live figures for the stress-test readout, written by the animation thread
+    private volatile long stepsTaken;
+    private volatile int publishedBodyCount;
+    private volatile long lastPhysicsNanos;
+
+    public ScenePanel(SuikaWorld world, GameManager gameManager, ShouldbeMain mainPanel) {
+        this(world, gameManager, mainPanel, null);
+    }
+
+    /** Runs {@code stress}'s world, created with {@link StressScene#createWorld()}, with no player. */
+    public ScenePanel(SuikaWorld world, StressScene stress) {
+        this(world, null, null, stress);
+    }
+
+    private ScenePanel(SuikaWorld world, GameManager gameManager, ShouldbeMain mainPanel, StressScene stress) {
+        this.world = world;
         this.gameManager = gameManager;
         this.mainPanel = mainPanel;
+        this.stress = stress;
+        world.setListener(this::onMerge);
+        frames.publish(world, 1.0);
+        publishedBodyCount = world.bodyCount();
         loadBackgroundImage();
         addMouseListener(this);
         addMouseMotionListener(this);
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "toggleHud");
+        getActionMap().put("toggleHud", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                hud.toggle();
+                repaint();
+            }
+        });
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F9, 0), "dumpRecording");
+        getActionMap().put("dumpRecording", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dumpRecording();
+            }
+        });
+        if (ACTIVE_RENDERING && !GraphicsEnvironment.isHeadless()) installActiveCanvas();
         startAnimation();
     }
 
-    private void loadBackgroundImage() {
-        try {
-            URL imgUrl = getClass().getResource("/icons/bg.png");
-            backgroundImage = (imgUrl != null) ? ImageIO.read(imgUrl) : null;
-            if (backgroundImage == null) setBackground(new Color(173, 216, 230));
-        } catch (IOException e) {
-            setBackground(new Color(173, 216, 230));
-        }
+    /** Saves the last few minutes of the flight recording, off the EDT, for a hitch the player just saw. */
+    private void dumpRecording() {
+        new Thread(() -> {
+            try {
+                Path file = FlightRecording.dump();
+                if (file != null) System.out.println("Saved flight recording to " + file.toAbsolutePath());
+            } catch (IOException e) {
+                System.err.println("Error saving flight recording: " + e.getMessage());
+            }
+        }, "recording-dump").start();
     }
 
-    public void setNextBallTypeForDropping(BallType type) {
-        this.nextBallTypeToDrop = type;
+    private void loadBackgroundImage() {
+        backgroundImage = ImageCache.getImage("/icons/bg.png");
+        if (backgroundImage == null) setBackground(new Color(173, 216, 230));
     }
 
     private void startAnimation() {
         animationThread = new Thread(() -> {
+            final long stepNanos = 1_000_000_000L / physicsHz;
+            final long frameNanos = 1_000_000_000L / ShouldbeMain.FPS;
+            final double dt = 1.0 / physicsHz;
+            long previous = System.nanoTime();
+            long accumulator = 0;
+
             while (running) {
-                long frameStart = System.currentTimeMillis();
+                long frameStart = System.nanoTime();
+                long frameInterval = frameStart - previous;
+                accumulator += frameInterval;
+                previous = frameStart;
 
                 if (getWidth() > 0 && getHeight() > 0) {
-                    updatePhysics(1.0 / ShouldbeMain.FPS);
-                    for (int i = 0; i < 3; i++) {
-                        checkAndResolveCollisions();
-                        handleMerging();
+                    if (!started) startWorld();
+                    resetMotionBounds();
+                    int steps = 0;
+                    long collisionNanos = 0, mergeNanos = 0;
+                    int clockReads = 0;
+                    while (accumulator >= stepNanos && steps < MAX_STEPS_PER_FRAME) {
+                        applyPendingDrops();
+                        if (stress != null) stress.update(world, dt);
+                        GameEvents.Tick tick = new GameEvents.Tick();
+                        tick.begin();
+                        world.step(dt);
+                        tick.end();
+                        if (tick.shouldCommit()) {
+                            tick.tick = world.getTick();
+                            tick.bodies = world.bodyCount();
+                            tick.candidatePairs = world.getLastCandidatePairs();
+                            tick.contacts = world.getLastContacts();
+                            tick.collisionTime = world.getLastCollisionNanos();
+                            tick.mergeTime = world.getLastMergeNanos();
+                            tick.commit();
+                        }
+                        collisionNanos += world.getLastCollisionNanos();
+                        mergeNanos += world.getLastMergeNanos();
+                        clockReads += world.getLastClockReads();
+                        world.bodies().accumulateMotionBounds(motionBounds);
+                        accumulator -= stepNanos;
+                        steps++;
+                    }
+                    long physicsNanos = System.nanoTime() - frameStart;
+                    stepsTaken += steps;
+                    publishedBodyCount = world.bodyCount();
+                    lastPhysicsNanos = physicsNanos;
+                    hud.recordFrame(frameInterval, physicsNanos, collisionNanos, mergeNanos, world.bodyCount(),
+                            world.getLastCandidatePairs(), clockReads);
+                    // Without a step, balls still glide along their last step's interpolation
+                    if (steps == 0) world.bodies().accumulateMotionBounds(motionBounds);
+                    // Too far behind to catch up: drop the backlog instead of spiralling
+                    if (accumulator >= stepNanos) accumulator %= stepNanos;
+                    if (world.isGameOver() && running) {
+                        running = false;
+                        SwingUtilities.invokeLater(() -> gameManager.endGame(world.score()));
                     }
-                    checkGameOver();
+                    frames.publish(world, (double) accumulator / stepNanos);
+                    if (activeCanvas == null || !renderActive()) repaintChanged();
+                } else {
+                    accumulator = 0;
                 }
 
-                SwingUtilities.invokeLater(this::repaint);
-
-                long sleep = (1000L / ShouldbeMain.FPS) - (System.currentTimeMillis() - frameStart);
+                long sleep = frameNanos - (System.nanoTime() - frameStart);
                 if (sleep > 0) {
-                    try { Thread.sleep(sleep); } catch (InterruptedException e) { Thread.currentThread().interrupt(); running = false; }
+                    try { Thread.sleep(sleep / 1_000_000L, (int) (sleep % 1_000_000L)); } catch (InterruptedException e) { Thread.currentThread().interrupt(); running = false; }
                 }
             }
         });
         animationThread.start();
     }
 
-    private void updatePhysics(double dt) {
-        for (MyShape shape : shapes) {
-            shape.applyPhysics(dt, getHeight(), 0, getWidth());
-        }
+    private void installActiveCanvas() {
+        Canvas canvas = new Canvas();
+        canvas.setIgnoreRepaint(true);
+        canvas.addMouseListener(this);
+        canvas.addMouseMotionListener(this);
+        setLayout(new BorderLayout());
+        add(canvas, BorderLayout.CENTER);
+        setIgnoreRepaint(true);
+        activeCanvas = canvas;
     }
 
-    private void checkAndResolveCollisions() {
-        for (int i = 0; i < shapes.size(); i++) {
-            for (int j = i + 1; j < shapes.size(); j++) {
-                MyShape s1 = shapes.get(i), s2 = shapes.get(j);
-
-                double c1x = s1.getX() + s1.getWidth() / 2, c1y = s1.getY() + s1.getHeight() / 2;
-                double c2x = s2.getX() + s2.getWidth() / 2, c2y = s2.getY() + s2.getHeight() / 2;
-                double dx = c1x - c2x, dy = c1y - c2y;
-                double distance = Math.hypot(dx, dy);
-                double minDist = (s1.getWidth() + s2.getWidth()) / 2;
-
-                if (distance < minDist && distance > 0) {
-                    double overlap = minDist - distance;
-                    double angle = Math.atan2(dy, dx);
-                    double cos = Math.cos(angle), sin = Math.sin(angle);
-                    double half = overlap / 2;
-
-                    // Move both balls apart equally in both X and Y
-                    s1.setX(s1.getX() + half * cos);
-                    s1.setY(s1.getY() + half * sin);
-                    s2.setX(s2.getX() - half * cos);
-                    s2.setY(s2.getY() - half * sin);
-
-                    // Optional: transfer a bit of velocity for realism
-                    double push = 0.2;
-                    s1.setVx(s1.getVx() + push * cos);
-                    s2.setVx(s2.getVx() - push * cos);
-                }
+    /**
+     * Draws the newest frame straight into the canvas's back buffer and flips it,
+     * redrawing if the buffer's surface was lost or restored meanwhile.
+     * @return false if nothing was presented, so the Swing path should paint instead.
+     */
+    private boolean renderActive() {
+        Canvas canvas = activeCanvas;
+        if (!canvas.isDisplayable() || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) return false;
+        try {
+            if (bufferStrategy == null) {
+                canvas.createBufferStrategy(2);
+                bufferStrategy = canvas.getBufferStrategy();
             }
+            RenderSnapshot frame = frames.acquire();
+            do {
+                do {
+                    Graphics2D g2 = (Graphics2D) bufferStrategy.getDrawGraphics();
+                    try {
+                        renderFrame(g2, frame, canvas.getWidth(), canvas.getHeight());
+                    } finally {
+                        g2.dispose();
+                    }
+                } while (bufferStrategy.contentsRestored());
+                bufferStrategy.show();
+            } while (bufferStrategy.contentsLost());
+            Toolkit.getDefaultToolkit().sync();
+            lastPresentNanos = System.nanoTime();
+            framesPresented++;
+            presentFailures = 0;
+            return true;
+        } catch (IllegalStateException e) {
+            // The canvas lost its peer or its buffers; rebuild them, or give up on active rendering
+            bufferStrategy = null;
+            if (++presentFailures >= MAX_PRESENT_FAILURES) fallBackToSwing(e);
+            return false;
         }
     }
 
-    private void handleMerging() {
-        java.util.List<MyShape> toAdd = new ArrayList<>();
-        Set<MyShape> toRemove = new HashSet<>();
-        for (int i = 0; i < shapes.size(); i++) {
-            for (int j = i + 1; j < shapes.size(); j++) {
-                MyShape s1 = shapes.get(i), s2 = shapes.get(j);
-                if (toRemove.contains(s1) || toRemove.contains(s2)) continue;
-                if (s1 instanceof Circle c1 && s2 instanceof Circle c2 && c1.getType() == c2.getType()) {
-                    double c1x = c1.getX() + c1.getWidth() / 2, c1y = c1.getY() + c1.getHeight() / 2;
-                    double c2x = c2.getX() + c2.getWidth() / 2, c2y = c2.getY() + c2.getHeight() / 2;
-                    double distance = Math.hypot(c1x - c2x, c1y - c2y);
-                    double combinedRadii = (c1.getWidth() + c2.getWidth()) / 2;
-                    if (distance < combinedRadii * 1.02) {
-                        toRemove.add(c1); toRemove.add(c2);
-                        BallType nextType = BallType.getNext(c1.getType());
-                        if (nextType != null) {
-                            double mx = (c1x + c2x) / 2, my = (c1y + c2y) / 2;
-                            toAdd.add(new Circle(nextType, mx, my));
-                            mainPanel.addScore(nextType.scoreValue);
-                        } else {
-                            mainPanel.addScore(BallType.LEVEL_10.scoreValue * 2);
-                        }
-                        SoundUtils.playSound("/audio/combine.wav");
-                        break;
-                    }
-                }
-            }
+    private void fallBackToSwing(Exception cause) {
+        System.err.println("Active rendering unavailable, using Swing painting: " + cause.getMessage());
+        Canvas canvas = activeCanvas;
+        activeCanvas = null;
+        SwingUtilities.invokeLater(() -> {
+            remove(canvas);
+            setIgnoreRepaint(false);
+            revalidate();
+            repaint();
+        });
+    }
+
+    /** Whether frames are currently flipped by the animation thread rather than painted by Swing. */
+    public boolean isActiveRendering() { return activeCanvas != null; }
+
+    /** {@link System#nanoTime()} at which the last actively rendered frame was shown, or 0. */
+    public long getLastPresentNanos() { return lastPresentNanos; }
+
+    public long getFramesPresented() { return framesPresented; }
+
+    private void resetMotionBounds() {
+        motionBounds[0] = motionBounds[1] = Double.POSITIVE_INFINITY;
+        motionBounds[2] = motionBounds[3] = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Asks Swing to repaint just the union of the balls that moved and the drop
+     * preview, in this frame and the last; drops, merges and resizes repaint everything.
+     * Runs on the animation thread, which owns the world.
+     */
+    private void repaintChanged() {
+        // In a stress test nearly everything moves and the view is scaled, so it is all repainted
+        if (stress != null) {
+            repaint();
+            return;
         }
-        if (!toRemove.isEmpty()) {
-            shapes.removeAll(toRemove);
-            shapes.addAll(toAdd);
+        int width = getWidth(), height = getHeight();
+        Rectangle motion = new Rectangle();
+        if (motionBounds[0] <= motionBounds[2]) {
+            int x = (int) Math.floor(motionBounds[0]) - DIRTY_PADDING;
+            int y = (int) Math.floor(motionBounds[1]) - DIRTY_PADDING;
+            motion.setBounds(x, y, (int) Math.ceil(motionBounds[2]) + DIRTY_PADDING - x, (int) Math.ceil(motionBounds[3]) + DIRTY_PADDING - y);
         }
+        Rectangle preview = previewBounds(world.getNextBall(), width);
+
+        long bodyChanges = world.getBodyChangeCount();
+        if (bodyChanges != lastBodyChanges || width != lastWidth || height != lastHeight) {
+            repaint();
+        } else {
+            Rectangle dirty = union(motion, lastMotionRect);
+            if (!preview.equals(lastPreviewRect)) dirty = union(union(dirty, preview), lastPreviewRect);
+            if (!dirty.isEmpty()) repaint(dirty);
+            if (hud.isStale(System.nanoTime())) repaint(hud.getBounds());
+        }
+        lastBodyChanges = bodyChanges;
+        lastWidth = width;
+        lastHeight = height;
+        lastMotionRect.setBounds(motion);
+        lastPreviewRect.setBounds(preview);
     }
 
-    private void checkGameOver() {
-        boolean isAnyBallAboveLine = shapes.stream().anyMatch(shape ->
-            shape.getY() < GAME_OVER_LINE_Y_OFFSET &&
-            Math.abs(shape.getV()) < 0.5 &&
-            Math.abs(shape.getVx()) < 0.5
-        );
-        if (isAnyBallAboveLine) {
-            if (gameOverCheckStartTime == -1) {
-                gameOverCheckStartTime = System.currentTimeMillis();
-            } else if (System.currentTimeMillis() - gameOverCheckStartTime > GAME_OVER_THRESHOLD_MS) {
-                if (running) {
-                    running = false;
-                    SwingUtilities.invokeLater(() -> gameManager.endGame(mainPanel.getScore()));
-                }
+    // Rectangle.union treats an empty rectangle at the origin as a point to include
+    private static Rectangle union(Rectangle a, Rectangle b) {
+        if (a.isEmpty()) return new Rectangle(b);
+        if (b.isEmpty()) return a;
+        return a.union(b);
+    }
+
+    /** Where the translucent next-ball preview is drawn, or an empty rectangle if it is hidden. */
+    private Rectangle previewBounds(BallType next, int width) {
+        if (next == null || !canDropBall) return new Rectangle();
+        int radius = (int) next.radius;
+        double previewX = Math.max(radius, Math.min(mouseDropPos.x, width - radius));
+        return new Rectangle((int) (previewX - radius), SuikaWorld.GAME_OVER_LINE_Y / 2 - radius, radius * 2, radius * 2);
+    }
+
+    private void startWorld() {
+        started = true;
+        // A resumed world keeps its saved container and cannot be replayed from its seed;
+        // a stress test's container is larger than the panel and it is not a game worth replaying
+        if (world.getTick() > 0 || stress != null) return;
+        // The container is fixed from the first tick on, so the replay can rebuild it
+        world.setContainerSize(getWidth(), getHeight());
+        if (RECORD_REPLAYS) recorder = new Replay.Recorder(world.getSeed(), physicsHz, world.getSolverIterations(), getWidth(), getHeight());
+    }
+
+    /** Runs on the animation thread between steps, so drops land on exact ticks. */
+    private void applyPendingDrops() {
+        Integer x;
+        while ((x = pendingDrops.poll()) != null) {
+            BallType dropped = world.drop(x);
+            if (dropped == null) continue;
+            if (recorder != null) recorder.recordDrop(world.getTick(), x, dropped);
+            GameEvents.Drop drop = new GameEvents.Drop();
+            if (drop.shouldCommit()) {
+                drop.ballType = dropped.name();
+                drop.x = x;
+                drop.tick = world.getTick();
+                drop.commit();
             }
-        } else {
-            gameOverCheckStartTime = -1;
+            BallType next = world.getNextBall();
+            if (mainPanel != null) SwingUtilities.invokeLater(() -> mainPanel.showNextBall(next));
+        }
+    }
+
+    /** Called on the animation thread once per step in which anything merged. */
+    private void onMerge(MergeQueue.MergeEvent event) {
+        if (mainPanel != null) mainPanel.showScore(world.score());
+        // Pan towards where the merge happened, short of hard left or right
+        float pan = (float) (0.8 * (2 * event.x / world.getWidth() - 1));
+        SoundUtils.playSound(MERGE_SOUND, 1f, pan);
+        for (int k = 0; k < event.merges; k++) {
+            GameEvents.Merge merge = new GameEvents.Merge();
+            if (!merge.shouldCommit()) break;
+            BallType from = event.getFromType(k);
+            BallType to = BallType.getNext(from);
+            merge.fromType = from.name();
+            merge.toType = to != null ? to.name() : "";
+            merge.cascadeDepth = event.getDepth(k);
+            merge.commit();
         }
     }
 
     private void attemptDropBall() {
-        if (nextBallTypeToDrop == null || !canDropBall) return;
+        if (!canDropBall || stress != null) return;
         if (System.currentTimeMillis() - lastDropTime < DROP_COOLDOWN) return;
-        double radius = nextBallTypeToDrop.radius;
-        double dropX = Math.max(radius, Math.min(mouseDropPos.x, getWidth() - radius));
-        shapes.add(new Circle(nextBallTypeToDrop, dropX, radius));
-        mainPanel.generateNewNextBall();
+        if (frames.isGameOver()) return;
+        pendingDrops.add(mouseDropPos.x);
         canDropBall = false;
         lastDropTime = System.currentTimeMillis();
         new javax.swing.Timer((int) DROP_COOLDOWN, e -> {
@@ -196,37 +426,155 @@ public class ScenePanel extends JPanel implements MouseListener, MouseMotionList
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Graphics2D g2 = (Graphics2D) g;
+        // While the canvas covers the panel, any paint here would just be overdrawn
+        if (activeCanvas != null) return;
+        renderFrame((Graphics2D) g, frames.acquire(), getWidth(), getHeight());
+    }
+
+    /** Draws one frame; runs on the EDT in Swing mode, or on the animation thread in active mode. */
+    private void renderFrame(Graphics2D g2, RenderSnapshot frame, int width, int height) {
+        long paintStart = System.nanoTime();
+        GameEvents.Paint paint = new GameEvents.Paint();
+        paint.begin();
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        if (backgroundImage != null) {
-            g2.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
+        // Sprites are pre-scaled; bilinear only has to cover the rotation
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        backgroundLayer.draw(g2, getGraphicsConfiguration(), width, height);
+
+        if (stress != null) {
+            // The whole container, scaled down to fit the panel and centered across it
+            double scale = Math.min(width / stress.getWidth(), height / stress.getHeight());
+            int left = (int) ((width - stress.getWidth() * scale) / 2);
+            AffineTransform view = g2.getTransform();
+            g2.translate(left, 0);
+            g2.scale(scale, scale);
+            drawView.setViewScale(scale);
+            drawBalls(g2, frame);
+            g2.setTransform(view);
+            g2.setColor(CONTAINER_OUTLINE);
+            g2.drawRect(left, 0, (int) (stress.getWidth() * scale), (int) (stress.getHeight() * scale));
         } else {
-            g2.setColor(new Color(240, 229, 210));
-            g2.fillRect(0, 0, getWidth(), getHeight());
+            drawBalls(g2, frame);
+            drawOverlay(g2, frame, width);
+        }
+        hud.recordPaint(System.nanoTime() - paintStart);
+        paint.end();
+        if (paint.shouldCommit()) {
+            paint.balls = frame.size();
+            paint.activeRendering = activeCanvas != null;
+            paint.commit();
         }
+        hud.draw(g2);
+        if (!firstFrameDrawn) {
+            firstFrameDrawn = true;
+            StartupTimings.mark("first game frame");
+        }
+    }
+
+    private void drawBalls(Graphics2D g2, RenderSnapshot frame) {
+        // Balls wholly outside the repainted region are skipped
+        Rectangle clip = g2.getClipBounds();
+        for (int i = 0, n = frame.size(); i < n; i++) {
+            double r = frame.getRadius(i) + DIRTY_PADDING;
+            if (clip != null && (frame.getX(i) + r < clip.x || frame.getX(i) - r > clip.x + clip.width
+                    || frame.getY(i) + r < clip.y || frame.getY(i) - r > clip.y + clip.height)) continue;
+            drawView.bind(frame, i).draw(g2);
+        }
+    }
+
+    /** The game-over line and the drop preview. */
+    private void drawOverlay(Graphics2D g2, RenderSnapshot frame, int width) {
+        Stroke stroke = g2.getStroke();
+        g2.setStroke(LINE_STROKE);
+        g2.setColor(LINE_COLOR);
+        g2.drawLine(0, SuikaWorld.GAME_OVER_LINE_Y, width, SuikaWorld.GAME_OVER_LINE_Y);
+        g2.setStroke(stroke);
+        BallType nextBallTypeToDrop = frame.getNextBall();
         if (nextBallTypeToDrop != null && canDropBall) {
-            ImageIcon icon = nextBallTypeToDrop.getResizedImageIcon((int) nextBallTypeToDrop.radius * 2);
-            if (icon != null) {
-                double radius = nextBallTypeToDrop.radius;
-                double previewX = Math.max(radius, Math.min(mouseDropPos.x, getWidth() - radius));
-                g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
-                g2.drawImage(icon.getImage(), (int) (previewX - radius), (int) (GAME_OVER_LINE_Y_OFFSET / 2 - radius), null);
-                g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f));
+            // At device resolution like the balls in play, so the type's sprites stay in the lock-free cache
+            GraphicsConfiguration config = g2.getDeviceConfiguration();
+            if (config != previewConfig) {
+                previewConfig = config;
+                previewScale = config != null ? config.getDefaultTransform().getScaleX() : 1.0;
+            }
+            BufferedImage sprite = BallSprites.getSprite(nextBallTypeToDrop, (int) nextBallTypeToDrop.radius * 2, previewScale);
+            if (sprite != null) {
+                Rectangle preview = previewBounds(nextBallTypeToDrop, width);
+                Composite composite = g2.getComposite();
+                g2.setComposite(PREVIEW_COMPOSITE);
+                g2.drawImage(sprite, preview.x, preview.y, preview.width, preview.height, null);
+                g2.setComposite(composite);
             }
         }
-        for (MyShape shape : shapes) shape.draw(g);
     }
 
+    private void paintBackground(Graphics2D g, int width, int height) {
+        if (backgroundImage != null) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.drawImage(backgroundImage, 0, 0, width, height, null);
+        } else {
+            g.setColor(new Color(240, 229, 210));
+            g.fillRect(0, 0, width, height);
+        }
+    }
+
+    /** Steps taken since the panel was created; for the stress-test readout. */
+    public long getStepsTaken() { return stepsTaken; }
+
+    /** Balls in the world as of the last frame; safe from any thread. */
+    public int getPublishedBodyCount() { return publishedBodyCount; }
+
+    /** Time the last frame spent stepping physics, over all its steps. */
+    public long getLastPhysicsNanos() { return lastPhysicsNanos; }
+
+    /** The {@code p} percentile (0 to 1) of recent frame intervals, from the performance overlay's history. */
+    public long getFrameNanosPercentile(double p) { return hud.percentile(p); }
+
+    /** The world; only safe to touch from the EDT once the animation thread has stopped. */
+    public SuikaWorld getWorld() { return world; }
+
+    /** The score as of the newest published frame; safe from any thread. */
+    public int getPublishedScore() { return frames.latestScore(); }
+
     public void stopAnimation() {
         running = false;
-        if (animationThread != null) animationThread.interrupt();
+        if (animationThread != null) {
+            animationThread.interrupt();
+            try {
+                animationThread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        saveReplay();
+    }
+
+    /**
+     * Whether the animation thread has finished, so the world is safe to read.
+     * {@link #stopAnimation} only waits so long for it, and it may still be mid-step.
+     */
+    public boolean isAnimationStopped() {
+        return animationThread == null || !animationThread.isAlive();
+    }
+
+    /** Writes the finished game to the replay directory, once. */
+    private void saveReplay() {
+        Replay.Recorder finished = recorder;
+        recorder = null;
+        if (finished == null || !isAnimationStopped()) return;
+        String name = "replay-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".rpl";
+        try {
+            finished.finish(world.getTick(), world.score()).write(Path.of(REPLAY_DIR, name));
+        } catch (IOException e) {
+            System.err.println("Failed to save replay: " + e.getMessage());
+        }
     }
 
     @Override public void mouseClicked(MouseEvent e) { if (e.getButton() == MouseEvent.BUTTON1) attemptDropBall(); }
     @Override public void mouseMoved(MouseEvent e) { mouseDropPos = e.getPoint(); }
     @Override public void mousePressed(MouseEvent e) {}
     @Override public void mouseReleased(MouseEvent e) {}
-    @Override public void mouseEntered(MouseEvent e) { setCursor(Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR)); }
-    @Override public void mouseExited(MouseEvent e) { setCursor(Cursor.getDefaultCursor()); }
+    @Override public void mouseEntered(MouseEvent e) { e.getComponent().setCursor(Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR)); }
+    @Override public void mouseExited(MouseEvent e) { e.getComponent().setCursor(Cursor.getDefaultCursor()); }
     @Override public void mouseDragged(MouseEvent e) {}
 }
@@ -1,16 +1,19 @@
 package panels;
 
 import java.awt.*;
-import java.net.URL;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
+import shapes.BallSprites;
 import shapes.BallType;
+import utils.ImageCache;
 
 public class ShapePanel extends JPanel {
 
     private static final int PANEL_WIDTH = 150;
     private BallType nextBallType;
     private ImageIcon nextBackgroundImage;
-    private ImageIcon panelBackgroundImage;
+    private BufferedImage panelBackgroundImage;
+    private final StaticLayer background = new StaticLayer(this::paintBackground);
     private final JLabel displayLabel;
 
     public ShapePanel() {
@@ -27,12 +30,12 @@ public class ShapePanel extends JPanel {
                 if (nextBallType != null) {
                     Graphics2D g2 = (Graphics2D) g;
                     g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                    int diameter = 80;
+                    int diameter = BallSprites.NEXT_BALL_DIAMETER;
                     int x = (getWidth() - diameter) / 2;
                     int y = (getHeight() - diameter) / 2;
-                    ImageIcon ballIcon = nextBallType.getResizedImageIcon(diameter);
-                    if (ballIcon != null) {
-                        g2.drawImage(ballIcon.getImage(), x, y, null);
+                    BufferedImage ballSprite = BallSprites.getSprite(nextBallType, diameter);
+                    if (ballSprite != null) {
+                        g2.drawImage(ballSprite, x, y, null);
                     }
                 }
             }
@@ -52,51 +55,45 @@ public class ShapePanel extends JPanel {
     }
 
     private void loadResources() {
-        try {
-            // Load the panel background image from /icons/panel_bg.png (change filename as needed)
-            URL bgUrl = getClass().getResource("/icons/start_bg.png");
-            if (bgUrl != null) {
-                panelBackgroundImage = new ImageIcon(bgUrl);
-            } else {
-                System.err.println("Panel background image not found: /icons/panel_bg.png");
-            }
+        panelBackgroundImage = ImageCache.getImage("/icons/start_bg.png");
+        if (panelBackgroundImage == null) {
+            System.err.println("Panel background image not found: /icons/start_bg.png");
+        }
 
-            URL imgUrl = getClass().getResource("/icons/next.png");
-            if (imgUrl != null) {
-                ImageIcon originalIcon = new ImageIcon(imgUrl);
-                int newWidth = PANEL_WIDTH - 20;
-                Image scaledImage = originalIcon.getImage().getScaledInstance(newWidth, -1, Image.SCALE_SMOOTH);
-                nextBackgroundImage = new ImageIcon(scaledImage);
-            } else {
-                System.err.println("Next ball background not found: /icons/next.png");
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to load images for ShapePanel.");
+        BufferedImage original = ImageCache.getImage("/icons/next.png");
+        if (original != null) {
+            nextBackgroundImage = new ImageIcon(ImageCache.scaleToWidth(original, PANEL_WIDTH - 20));
+        } else {
+            System.err.println("Next ball background not found: /icons/next.png");
         }
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        // Draw the panel background image if available, cut/crop if needed
+        // The cropped background only changes with the panel's size
+        background.draw(g, getGraphicsConfiguration(), getWidth(), getHeight());
+    }
+
+    private void paintBackground(Graphics2D g, int width, int height) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, width, height);
         if (panelBackgroundImage != null) {
-            Image img = panelBackgroundImage.getImage();
-            int imgW = img.getWidth(this);
-            int imgH = img.getHeight(this);
-            int panelW = getWidth();
-            int panelH = getHeight();
+            int imgW = panelBackgroundImage.getWidth();
+            int imgH = panelBackgroundImage.getHeight();
 
             // Only draw the top-left portion of the image that fits the panel
             g.drawImage(
-                img,
-                0, 0, panelW, panelH, // destination rectangle (panel)
-                0, 0, Math.min(panelW, imgW), Math.min(panelH, imgH), // source rectangle (image)
-                this
+                panelBackgroundImage,
+                0, 0, width, height, // destination rectangle (panel)
+                0, 0, Math.min(width, imgW), Math.min(height, imgH), // source rectangle (image)
+                null
             );
         }
     }
 
     public void setNextBallType(BallType type) {
+        if (type == nextBallType) return;
         this.nextBallType = type;
         displayLabel.repaint();
     }
@@ -0,0 +1,42 @@
+package panels;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * A layer that only changes with the size of the component it backs, rendered once
+ * into a screen-compatible image and then drawn with a single unscaled blit.
+ */
+final class StaticLayer {
+
+    interface Painter {
+        void paint(Graphics2D g, int width, int height);
+    }
+
+    private final Painter painter;
+    private BufferedImage image;
+
+    /** @param painter Draws the layer at a given size; called again only on resize. */
+    StaticLayer(Painter painter) {
+        this.painter = painter;
+    }
+
+    void draw(Graphics g, GraphicsConfiguration config, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = config != null
+                    ? config.createCompatibleImage(width, height, Transparency.OPAQUE)
+                    : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2 = image.createGraphics();
+            try {
+                painter.paint(g2, width, height);
+            } finally {
+                g2.dispose();
+            }
+        }
+        g.drawImage(image, 0, 0, null);
+    }
+}
@@ -0,0 +1,104 @@
+package panels;
+
+import java.awt.*;
+import javax.swing.*;
+import main.ShouldbeMain;
+import physics.StressScene;
+
+/**
+ * Side panel of the stress test: ball count, achieved step rate against the
+ * fixed tick rate, frame and physics time, and heap use, refreshed twice a
+ * second. The first time the simulation falls behind real time it records the
+ * ball count at which that happened, the number to track from one change to
+ * the next.
+ */
+public class StressReadout extends JPanel {
+
+    private static final int PANEL_WIDTH = 190;
+    private static final int REFRESH_MILLIS = 500;
+    // Below this share of the tick rate for two readings in a row counts as falling behind
+    private static final double KEEPING_UP = 0.95;
+
+    private final ScenePanel scene;
+    private final JLabel ballsLabel = label();
+    private final JLabel stepsLabel = label();
+    private final JLabel frameLabel = label();
+    private final JLabel physicsLabel = label();
+    private final JLabel heapLabel = label();
+    private final JLabel fellBehindLabel = label();
+    private final Timer timer;
+
+    private long lastSteps;
+    private long lastNanos = System.nanoTime();
+    private int slowReadings;
+    private int fellBehindAt = -1;
+
+    public StressReadout(ScenePanel scene, StressScene stress, Runnable onBack) {
+        this.scene = scene;
+        setPreferredSize(new Dimension(PANEL_WIDTH, 0));
+        setLayout(new GridBagLayout());
+        setBorder(BorderFactory.createMatteBorder(0, 1, 0, 0, Color.DARK_GRAY));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridwidth = GridBagConstraints.REMAINDER;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.insets = new Insets(6, 10, 6, 10);
+
+        JLabel title = new JLabel("Stress Test", SwingConstants.CENTER);
+        title.setFont(new Font("Arial", Font.BOLD, 16));
+        add(title, gbc);
+        JLabel settings = label();
+        settings.setText(String.format("<html>%.0f drops/s, merging %s<br>%.0f x %.0f container</html>",
+                stress.getDropsPerSecond(), stress.isMerging() ? "on" : "off", stress.getWidth(), stress.getHeight()));
+        add(settings, gbc);
+        for (JLabel label : new JLabel[] {ballsLabel, stepsLabel, frameLabel, physicsLabel, heapLabel, fellBehindLabel}) add(label, gbc);
+
+        gbc.weighty = 1.0;
+        add(Box.createVerticalGlue(), gbc);
+        gbc.weighty = 0;
+        JButton backButton = new JButton("Back");
+        backButton.setFont(new Font("Arial", Font.BOLD, 14));
+        backButton.addActionListener(e -> onBack.run());
+        add(backButton, gbc);
+
+        timer = new Timer(REFRESH_MILLIS, e -> refresh());
+        timer.start();
+        refresh();
+    }
+
+    private static JLabel label() {
+        JLabel label = new JLabel(" ");
+        label.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        label.setForeground(Color.BLACK);
+        return label;
+    }
+
+    private void refresh() {
+        long now = System.nanoTime();
+        long steps = scene.getStepsTaken();
+        double stepsPerSecond = (steps - lastSteps) / ((now - lastNanos) / 1e9);
+        lastSteps = steps;
+        lastNanos = now;
+        double speed = stepsPerSecond / ShouldbeMain.PHYSICS_HZ;
+        int balls = scene.getPublishedBodyCount();
+
+        ballsLabel.setText(String.format("balls   %d", balls));
+        stepsLabel.setText(String.format("steps/s %.0f (%.0f%%)", stepsPerSecond, 100 * speed));
+        frameLabel.setText(String.format("frame   p50 %.1f p99 %.1f", scene.getFrameNanosPercentile(0.50) / 1e6, scene.getFrameNanosPercentile(0.99) / 1e6));
+        physicsLabel.setText(String.format("physics %.2f ms", scene.getLastPhysicsNanos() / 1e6));
+        Runtime runtime = Runtime.getRuntime();
+        heapLabel.setText(String.format("heap    %d / %d MB", (runtime.totalMemory() - runtime.freeMemory()) >> 20, runtime.maxMemory() >> 20));
+
+        // The first readings cover startup and the initial fall, so they are not held against the engine
+        slowReadings = speed < KEEPING_UP && steps > 2L * ShouldbeMain.PHYSICS_HZ ? slowReadings + 1 : 0;
+        if (slowReadings == 2 && fellBehindAt < 0) {
+            fellBehindAt = balls;
+            System.out.printf("Stress test fell behind real time at %d balls (%.0f steps/s)%n", balls, stepsPerSecond);
+        }
+        fellBehindLabel.setText(fellBehindAt >= 0 ? "behind at " + fellBehindAt : "keeping up");
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+}
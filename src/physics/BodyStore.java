@@ -0,0 +1,319 @@
+package physics;
+
+import java.util.Arrays;
+import shapes.BallType;
+
+/**
+ * Structure-of-arrays storage for every ball in the container.
+ * Each body is an index into parallel primitive arrays; removing a body moves the
+ * last body into its slot, so live bodies always occupy {@code [0, size())} and
+ * the physics loops walk contiguous memory instead of chasing object pointers.
+ */
+public final class BodyStore {
+
+    public static final double GRAVITY = 300.0;
+    public static final double BOUNCE = 0.10;
+
+    /** Step rate the per-step damping factors below were originally tuned at. */
+    private static final double DAMPING_REFERENCE_HZ = 75.0;
+    private static final double AIR_ANGULAR_DAMPING = 0.98;
+    private static final double FLOOR_FRICTION = 0.94;
+
+    // A body slower than this for SLEEP_TIME seconds, together with its island, goes to sleep
+    public static final double SLEEP_LINEAR_SPEED = 8.0;
+    public static final double SLEEP_ANGULAR_SPEED = 0.1;
+    public static final double SLEEP_TIME = 0.5;
+
+    private static final BallType[] TYPES = BallType.values();
+
+    // Centers, velocities and rotation state
+    double[] x, y, vx, vy, angle, angularVelocity;
+    // State at the start of the current step, for render interpolation
+    double[] prevX, prevY, prevAngle;
+    // Derived per-type constants, cached alongside so hot loops never touch the enum
+    double[] mass, radius, inertia;
+    byte[] type;
+    // Identity that survives swap-removal, for anything remembered about a body across steps
+    int[] id;
+    // Sleep state: seconds spent below the sleep thresholds, and the island a sleeper went to sleep with
+    boolean[] asleep;
+    double[] restTime;
+    int[] sleepGroup;
+
+    private int count;
+    private int sleepingCount;
+    private int nextSleepGroup = 1;
+    private int nextId = 1;
+    private double[] islandRest = new double[64];
+    private int[] islandGroup = new int[64];
+
+    // Damping factors scaled to the last step length, so behaviour does not depend on the tick rate
+    private double dampingDt = -1;
+    private double airDamping, floorFriction;
+
+    public BodyStore(int initialCapacity) {
+        int n = Math.max(initialCapacity, 8);
+        x = new double[n]; y = new double[n];
+        prevX = new double[n]; prevY = new double[n]; prevAngle = new double[n];
+        vx = new double[n]; vy = new double[n];
+        angle = new double[n]; angularVelocity = new double[n];
+        mass = new double[n]; radius = new double[n]; inertia = new double[n];
+        type = new byte[n];
+        id = new int[n];
+        asleep = new boolean[n]; restTime = new double[n]; sleepGroup = new int[n];
+    }
+
+    public BodyStore() {
+        this(64);
+    }
+
+    /**
+     * Appends a resting ball centered at (centerX, centerY).
+     * @return The index of the new body.
+     */
+    public int add(BallType ballType, double centerX, double centerY) {
+        if (count == x.length) grow(count * 2);
+        int i = count++;
+        double r = ballType.radius;
+        x[i] = centerX; y[i] = centerY;
+        prevX[i] = centerX; prevY[i] = centerY; prevAngle[i] = 0;
+        vx[i] = 0; vy[i] = 0;
+        angle[i] = 0; angularVelocity[i] = 0;
+        // Mass has always been the radius; inertia is that of a solid disc.
+        mass[i] = r > 0 ? r : 1;
+        radius[i] = r;
+        inertia[i] = 0.5 * mass[i] * r * r;
+        if (inertia[i] == 0) inertia[i] = 1;
+        type[i] = (byte) ballType.ordinal();
+        id[i] = nextId++;
+        asleep[i] = false; restTime[i] = 0; sleepGroup[i] = 0;
+        return i;
+    }
+
+    /** Removes body {@code i} by moving the last body into its slot. */
+    public void remove(int i) {
+        if (asleep[i]) sleepingCount--;
+        int last = --count;
+        if (i != last) {
+            x[i] = x[last]; y[i] = y[last];
+            prevX[i] = prevX[last]; prevY[i] = prevY[last]; prevAngle[i] = prevAngle[last];
+            vx[i] = vx[last]; vy[i] = vy[last];
+            angle[i] = angle[last]; angularVelocity[i] = angularVelocity[last];
+            mass[i] = mass[last]; radius[i] = radius[last]; inertia[i] = inertia[last];
+            type[i] = type[last];
+            id[i] = id[last];
+            asleep[i] = asleep[last]; restTime[i] = restTime[last]; sleepGroup[i] = sleepGroup[last];
+        }
+    }
+
+    public void clear() {
+        count = 0;
+        sleepingCount = 0;
+    }
+
+    /** Remembers the current pose of every body as the start of the next step. */
+    public void savePreviousState() {
+        System.arraycopy(x, 0, prevX, 0, count);
+        System.arraycopy(y, 0, prevY, 0, count);
+        System.arraycopy(angle, 0, prevAngle, 0, count);
+    }
+
+    /**
+     * Integrates gravity and velocity for one body and resolves contact with the
+     * floor and side walls of the container.
+     */
+    public void integrate(int i, double dt, double sceneBottomY, double sceneLeft, double sceneRight) {
+        if (dt != dampingDt) prepareStep(dt);
+        double r = radius[i];
+        vy[i] += GRAVITY * dt;
+        x[i] += vx[i] * dt;
+        y[i] += vy[i] * dt;
+
+        // Update rotation and apply angular damping (air/rolling resistance)
+        angle[i] += angularVelocity[i] * dt;
+        angularVelocity[i] *= airDamping;
+
+        // --- Bottom boundary collision ---
+        if (y[i] + r >= sceneBottomY) {
+            y[i] = sceneBottomY - r;
+            // Only bounce if velocity is significant, otherwise come to rest
+            vy[i] = Math.abs(vy[i]) > 2.0 ? -vy[i] * BOUNCE : 0;
+            // Apply friction with the floor for rolling
+            vx[i] *= floorFriction;
+            angularVelocity[i] *= floorFriction;
+        }
+
+        // Side boundary collisions
+        if (x[i] - r < sceneLeft) {
+            x[i] = sceneLeft + r;
+            vx[i] = -vx[i] * BOUNCE;
+        } else if (x[i] + r > sceneRight) {
+            x[i] = sceneRight - r;
+            vx[i] = -vx[i] * BOUNCE;
+        }
+
+        // Stop tiny movements to prevent jittering
+        if (Math.abs(vy[i]) < 0.1) vy[i] = 0;
+        if (Math.abs(vx[i]) < 0.1) vx[i] = 0;
+        if (Math.abs(angularVelocity[i]) < 0.01) angularVelocity[i] = 0;
+    }
+
+    /**
+     * Pushes a body that collisions moved into the floor or a side wall back inside,
+     * cancelling its velocity into that wall so the container supports what rests on it.
+     */
+    public void constrainToContainer(int i, double sceneBottomY, double sceneLeft, double sceneRight) {
+        double r = radius[i];
+        if (y[i] + r > sceneBottomY) {
+            y[i] = sceneBottomY - r;
+            if (vy[i] > 0) vy[i] = 0;
+        }
+        if (x[i] - r < sceneLeft) {
+            x[i] = sceneLeft + r;
+            if (vx[i] < 0) vx[i] = 0;
+        } else if (x[i] + r > sceneRight) {
+            x[i] = sceneRight - r;
+            if (vx[i] > 0) vx[i] = 0;
+        }
+    }
+
+    /**
+     * Rescales the damping factors to a step of {@code dt} seconds. Called lazily by
+     * {@link #integrate}; call it up front when integrating from several threads.
+     */
+    public void prepareStep(double dt) {
+        if (dt == dampingDt) return;
+        double referenceSteps = dt * DAMPING_REFERENCE_HZ;
+        // StrictMath so every JVM computes the same factors and replays stay bit-exact
+        airDamping = StrictMath.pow(AIR_ANGULAR_DAMPING, referenceSteps);
+        floorFriction = StrictMath.pow(FLOOR_FRICTION, referenceSteps);
+        dampingDt = dt;
+    }
+
+    public void applyTorque(int i, double torque) {
+        angularVelocity[i] += torque / inertia[i];
+    }
+
+    /**
+     * Advances every awake body's rest timer and puts to sleep each island whose
+     * members have all been below the sleep thresholds for {@link #SLEEP_TIME}.
+     * Islands are joined only through contacts that are still moving, so bodies
+     * resting against one another sleep on their own while something elsewhere in
+     * the pile is still moving; whatever moves against a sleeper wakes it. A body
+     * with nothing under it, such as one sliding slowly down a wall, stays awake.
+     * @param supported Flags the bodies resting on the floor or on another ball this step.
+     */
+    public void updateSleep(ContactIslands islands, boolean[] supported, double dt) {
+        if (islandRest.length < count) {
+            islandRest = new double[Math.max(count, islandRest.length * 2)];
+            islandGroup = new int[islandRest.length];
+        }
+        for (int i = 0; i < count; i++) {
+            islandRest[i] = Double.MAX_VALUE;
+            islandGroup[i] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            if (asleep[i]) continue;
+            // Judge rest by how far the body actually moved this step: a ball held up by a
+            // pile still carries the gravity the solver has not fully cancelled yet.
+            double mx = (x[i] - prevX[i]) / dt, my = (y[i] - prevY[i]) / dt;
+            double spin = (angle[i] - prevAngle[i]) / dt;
+            boolean resting = mx * mx + my * my < SLEEP_LINEAR_SPEED * SLEEP_LINEAR_SPEED
+                    && Math.abs(spin) < SLEEP_ANGULAR_SPEED;
+            restTime[i] = resting ? restTime[i] + dt : 0;
+            int root = islands.find(i);
+            islandRest[root] = Math.min(islandRest[root], restTime[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            if (asleep[i]) continue;
+            int root = islands.find(i);
+            // A body keeps its island's timer, so it cannot sleep the moment a neighbour moving against it leaves
+            restTime[i] = islandRest[root];
+            if (islandRest[root] < SLEEP_TIME || !supported[i]) continue;
+            if (islandGroup[root] == 0) islandGroup[root] = nextSleepGroup++;
+            asleep[i] = true;
+            sleepGroup[i] = islandGroup[root];
+            vx[i] = 0; vy[i] = 0; angularVelocity[i] = 0;
+            sleepingCount++;
+        }
+    }
+
+    /** Wakes body {@code i} and every body that went to sleep in the same island. */
+    public void wakeGroupOf(int i) {
+        if (!asleep[i]) return;
+        int group = sleepGroup[i];
+        for (int j = 0; j < count; j++) {
+            if (asleep[j] && sleepGroup[j] == group) {
+                asleep[j] = false;
+                restTime[j] = 0;
+                sleepingCount--;
+            }
+        }
+    }
+
+    /**
+     * Wakes body {@code i}'s group if it sleeps, and restarts its rest timer either
+     * way: whatever was holding it still may have just gone.
+     */
+    public void disturb(int i) {
+        wakeGroupOf(i);
+        restTime[i] = 0;
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity); y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity); prevY = Arrays.copyOf(prevY, capacity); prevAngle = Arrays.copyOf(prevAngle, capacity);
+        vx = Arrays.copyOf(vx, capacity); vy = Arrays.copyOf(vy, capacity);
+        angle = Arrays.copyOf(angle, capacity); angularVelocity = Arrays.copyOf(angularVelocity, capacity);
+        mass = Arrays.copyOf(mass, capacity); radius = Arrays.copyOf(radius, capacity); inertia = Arrays.copyOf(inertia, capacity);
+        type = Arrays.copyOf(type, capacity);
+        id = Arrays.copyOf(id, capacity);
+        asleep = Arrays.copyOf(asleep, capacity); restTime = Arrays.copyOf(restTime, capacity); sleepGroup = Arrays.copyOf(sleepGroup, capacity);
+    }
+
+    /**
+     * Grows {@code bounds} ({minX, minY, maxX, maxY}) to cover every body that moved
+     * during the last step, at both its previous and current position, so any pose
+     * interpolated between the two is inside.
+     * @return Whether any body moved.
+     */
+    public boolean accumulateMotionBounds(double[] bounds) {
+        boolean moved = false;
+        for (int i = 0; i < count; i++) {
+            if (x[i] == prevX[i] && y[i] == prevY[i] && angle[i] == prevAngle[i]) continue;
+            double r = radius[i];
+            bounds[0] = Math.min(bounds[0], Math.min(x[i], prevX[i]) - r);
+            bounds[1] = Math.min(bounds[1], Math.min(y[i], prevY[i]) - r);
+            bounds[2] = Math.max(bounds[2], Math.max(x[i], prevX[i]) + r);
+            bounds[3] = Math.max(bounds[3], Math.max(y[i], prevY[i]) + r);
+            moved = true;
+        }
+        return moved;
+    }
+
+    public int size() { return count; }
+    public int getSleepingCount() { return sleepingCount; }
+    public int getAwakeCount() { return count - sleepingCount; }
+    public boolean isAsleep(int i) { return asleep[i]; }
+
+    public double getX(int i) { return x[i]; }
+    public void setX(int i, double value) { x[i] = value; }
+    public double getY(int i) { return y[i]; }
+    public void setY(int i, double value) { y[i] = value; }
+    public double getVx(int i) { return vx[i]; }
+    public void setVx(int i, double value) { vx[i] = value; }
+    public double getVy(int i) { return vy[i]; }
+    public void setVy(int i, double value) { vy[i] = value; }
+    public double getAngle(int i) { return angle[i]; }
+    public double getAngularVelocity(int i) { return angularVelocity[i]; }
+    public double getMass(int i) { return mass[i]; }
+    public double getRadius(int i) { return radius[i]; }
+    /** Position blended between the previous and current step; {@code alpha} is in [0, 1]. */
+    public double getInterpolatedX(int i, double alpha) { return prevX[i] + (x[i] - prevX[i]) * alpha; }
+    public double getInterpolatedY(int i, double alpha) { return prevY[i] + (y[i] - prevY[i]) * alpha; }
+    public double getInterpolatedAngle(int i, double alpha) { return prevAngle[i] + (angle[i] - prevAngle[i]) * alpha; }
+    public BallType getType(int i) { return TYPES[type[i]]; }
+    public int getTypeOrdinal(int i) { return type[i]; }
+    /** Id given to body {@code i} when it was added; unlike its index, it never changes. */
+    public int getId(int i) { return id[i]; }
+}
@@ -0,0 +1,116 @@
+package physics;
+
+import java.util.Arrays;
+
+/**
+ * The impulses each touching pair of bodies ended the last step with, keyed by
+ * the pair's {@link BodyStore#getId ids} so they survive bodies being removed
+ * and reordered. The contact solver starts every contact that persisted from
+ * these, so a resting pile begins each step already close to its answer.
+ * <p>
+ * Two open-addressing tables of primitives: one read from during a step, one
+ * written at its end, swapped between steps. Nothing is allocated once the
+ * tables have grown to the number of contacts. Lookups may run on several
+ * threads at once; {@link #store} may not.
+ */
+public final class ContactCache {
+
+    private static final long EMPTY = 0;
+
+    private Table previous = new Table(64), current = new Table(64);
+
+    /** Key of the pair of bodies with ids {@code idA} and {@code idB}, in either order. */
+    public static long key(int idA, int idB) {
+        int lo = Math.min(idA, idB), hi = Math.max(idA, idB);
+        return (long) lo << 32 | (hi & 0xFFFFFFFFL);
+    }
+
+    /** Makes the impulses stored since the last call the ones looked up, and starts an empty set to store into. */
+    public void swap(int expectedContacts) {
+        Table t = previous;
+        previous = current;
+        current = t;
+        current.clear(expectedContacts);
+    }
+
+    /** Forgets every stored impulse. */
+    public void clear() {
+        previous.clear(0);
+        current.clear(0);
+    }
+
+    /** @return The slot holding {@code key} from the last step, or -1 if the pair was not touching then. */
+    public int find(long key) { return previous.find(key); }
+    public double normalImpulse(int slot) { return previous.normal[slot]; }
+    public double tangentImpulse(int slot) { return previous.tangent[slot]; }
+
+    public void store(long key, double normalImpulse, double tangentImpulse) {
+        current.put(key, normalImpulse, tangentImpulse);
+    }
+
+    /** Pairs stored since the last {@link #swap}. */
+    public int size() { return current.size; }
+
+    private static final class Table {
+        long[] keys;
+        double[] normal, tangent;
+        int size;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            normal = new double[capacity];
+            tangent = new double[capacity];
+        }
+
+        // Kept at most half full
+        void clear(int expected) {
+            int capacity = keys.length;
+            while (capacity < 2 * expected) capacity *= 2;
+            if (capacity != keys.length) {
+                keys = new long[capacity];
+                normal = new double[capacity];
+                tangent = new double[capacity];
+            } else {
+                Arrays.fill(keys, EMPTY);
+            }
+            size = 0;
+        }
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                long k = keys[slot];
+                if (k == key) return slot;
+                if (k == EMPTY) return -1;
+            }
+        }
+
+        void put(long key, double n, double t) {
+            if (2 * (size + 1) > keys.length) grow();
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) slot = (slot + 1) & mask;
+            if (keys[slot] == EMPTY) size++;
+            keys[slot] = key;
+            normal[slot] = n;
+            tangent[slot] = t;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            double[] oldNormal = normal, oldTangent = tangent;
+            keys = new long[oldKeys.length * 2];
+            normal = new double[keys.length];
+            tangent = new double[keys.length];
+            size = 0;
+            for (int s = 0; s < oldKeys.length; s++) {
+                if (oldKeys[s] != EMPTY) put(oldKeys[s], oldNormal[s], oldTangent[s]);
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ h >>> 32);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package physics;
+
+/**
+ * Union-find over body indices, grouping bodies that touch into islands.
+ * The smaller index always becomes the root, so island ids depend only on
+ * which contacts were found and not on the order they were reported in.
+ */
+public final class ContactIslands {
+
+    private int[] parent = new int[64];
+    private int size;
+
+    /** Starts a new partition in which each of the first {@code n} bodies is its own island. */
+    public void reset(int n) {
+        if (parent.length < n) parent = new int[Math.max(n, parent.length * 2)];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        size = n;
+    }
+
+    public int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]]; // path halving
+            i = parent[i];
+        }
+        return i;
+    }
+
+    public void union(int a, int b) {
+        int ra = find(a), rb = find(b);
+        if (ra == rb) return;
+        if (ra < rb) parent[rb] = ra; else parent[ra] = rb;
+    }
+
+    public int size() { return size; }
+}
@@ -0,0 +1,294 @@
+package physics;
+
+import java.util.Arrays;
+
+/**
+ * Sequential-impulse solver for the contacts between balls and with the
+ * container. Each contact gets a normal impulse that stops the two sides closing,
+ * with a little bounce from {@link BodyStore#BOUNCE} when balls hit hard, a
+ * friction impulse along the surface, limited by Coulomb's law, that sets the
+ * balls spinning as they rub, and a rolling resistance that slows balls rolling
+ * over one another. The impulses are accumulated over a few iterations and
+ * weighted by mass and moment of inertia, and every contact that was already
+ * touching last step starts from the impulses it ended that step with, kept in a
+ * {@link ContactCache}. A pile resting under gravity therefore starts each step
+ * close to its answer, which is what lets it settle in a few iterations.
+ * Overlap the velocities did not prevent is then pushed out directly.
+ * <p>
+ * Contacts between balls are indexed by their broad-phase pair, and solving
+ * one only writes state of its two bodies, so pairs of different islands may
+ * be solved on different threads. Contacts with the container follow them and
+ * are solved on one thread. Sleeping bodies are treated as immovable.
+ */
+public final class ContactSolver {
+
+    /** Coulomb friction: the largest sideways impulse of a contact as a share of its normal one. */
+    public static final double FRICTION = 0.3;
+    /** Largest impulse resisting rolling, as a share of the normal impulse, per unit of contact radius. */
+    public static final double ROLLING_RESISTANCE = 0.05;
+    // Balls closing slower than this just come to rest instead of bouncing; well above what gravity adds in one step
+    private static final double BOUNCE_THRESHOLD = 20;
+    // Overlap left in place by position correction, so resting contacts stay touching from step to step
+    private static final double LINEAR_SLOP = 0.05;
+    // Share of the remaining overlap pushed out by each position iteration
+    private static final double POSITION_CORRECTION = 0.8;
+    // Stand-ins for the container's sides in cache keys, where a body id would go; real ids start at 1
+    private static final int FLOOR_ID = 0, LEFT_WALL_ID = -1, RIGHT_WALL_ID = -2;
+    private static final int STATIC = -1;
+
+    private final ContactCache cache = new ContactCache();
+    private BodyStore bodies;
+    private int pairCount, contactCount;
+    // The pairs that turned out to be contacts, in ascending order, for solving on one thread
+    private int[] touchingPairs = new int[64];
+
+    // Broad-phase pairs first, then container contacts; only meaningful where active is set
+    private boolean[] active = new boolean[64];
+    // Body b is STATIC for a container contact
+    private int[] bodyA = new int[64], bodyB = new int[64];
+    private long[] key = new long[64];
+    // Unit normal from b to a; the tangent is the normal turned a quarter clockwise, (-ny, nx)
+    private double[] nx = new double[64], ny = new double[64];
+    // Zero for a sleeping body or the container, which nothing moves
+    private double[] invMassA = new double[64], invMassB = new double[64], invInertiaA = new double[64], invInertiaB = new double[64];
+    private double[] normalMass = new double[64], tangentMass = new double[64];
+    private double[] rollingMass = new double[64], rollingRadius = new double[64];
+    // Normal speed the solver aims for: a bounce, or for a gap still to close, the speed that just closes it
+    private double[] targetSpeed = new double[64];
+    private double[] normalImpulse = new double[64], tangentImpulse = new double[64], rollingImpulse = new double[64];
+
+    /** Starts a step over the {@code pairs} candidate pairs of the broad phase. */
+    public void begin(BodyStore bodies, int pairs) {
+        this.bodies = bodies;
+        this.pairCount = pairs;
+        this.contactCount = pairs;
+        // Room for a floor and a side wall contact per body after the pairs
+        int capacity = pairs + 2 * bodies.size();
+        if (active.length < capacity) grow(Math.max(capacity, active.length * 2));
+        if (touchingPairs.length < pairs) touchingPairs = new int[Math.max(pairs, touchingPairs.length * 2)];
+        Arrays.fill(active, 0, pairs, false);
+        cache.swap(cache.size());
+    }
+
+    /**
+     * Sets up the contact of pair {@code k}, between bodies {@code a} and {@code b}
+     * whose centers are {@code distance} apart, {@code (dx, dy)} from b to a, and
+     * looks up the impulses it ended the last step with. Every contact must be
+     * prepared before any is warm started, so that bounces are judged on the
+     * velocities the bodies arrived with.
+     * @param dt Length of the step, over which a gap between the two may close.
+     */
+    public void prepare(int k, int a, int b, double dx, double dy, double distance, double dt) {
+        if (bodies.asleep[a] && bodies.asleep[b]) return;
+        double ra = bodies.radius[a], rb = bodies.radius[b];
+        setUp(k, a, b, dx / distance, dy / distance, distance - ra - rb, ra * rb / (ra + rb), dt,
+                ContactCache.key(bodies.id[a], bodies.id[b]));
+    }
+
+    /**
+     * Adds a contact with the floor or a side wall for every awake body within
+     * {@code slop} of one, after the pairs. Call after every pair is prepared.
+     */
+    public void prepareContainer(double sceneBottomY, double sceneLeft, double sceneRight, double slop, double dt) {
+        BodyStore s = bodies;
+        for (int i = 0, n = s.size(); i < n; i++) {
+            if (s.asleep[i]) continue;
+            double r = s.radius[i];
+            double floorGap = sceneBottomY - s.y[i] - r;
+            if (floorGap < slop) setUp(contactCount++, i, STATIC, 0, -1, floorGap, r, dt, ContactCache.key(FLOOR_ID, s.id[i]));
+            double leftGap = s.x[i] - r - sceneLeft, rightGap = sceneRight - s.x[i] - r;
+            if (leftGap < slop) setUp(contactCount++, i, STATIC, 1, 0, leftGap, r, dt, ContactCache.key(LEFT_WALL_ID, s.id[i]));
+            else if (rightGap < slop) setUp(contactCount++, i, STATIC, -1, 0, rightGap, r, dt, ContactCache.key(RIGHT_WALL_ID, s.id[i]));
+        }
+    }
+
+    private void setUp(int k, int a, int b, double cos, double sin, double gap, double contactRadius, double dt, long contactKey) {
+        BodyStore s = bodies;
+        boolean movesB = b != STATIC && !s.asleep[b];
+        double ima = s.asleep[a] ? 0 : 1 / s.mass[a], iia = s.asleep[a] ? 0 : 1 / s.inertia[a];
+        double imb = movesB ? 1 / s.mass[b] : 0, iib = movesB ? 1 / s.inertia[b] : 0;
+        double ra = s.radius[a], rb = b != STATIC ? s.radius[b] : 0;
+        active[k] = true;
+        bodyA[k] = a;
+        bodyB[k] = b;
+        key[k] = contactKey;
+        nx[k] = cos;
+        ny[k] = sin;
+        invMassA[k] = ima;
+        invMassB[k] = imb;
+        invInertiaA[k] = iia;
+        invInertiaB[k] = iib;
+        normalMass[k] = 1 / (ima + imb);
+        tangentMass[k] = 1 / (ima + imb + ra * ra * iia + rb * rb * iib);
+        rollingMass[k] = 1 / (iia + iib);
+        rollingRadius[k] = contactRadius;
+
+        // A sleeping body is at rest, so its velocity can be read like any other
+        double vxb = b != STATIC ? s.vx[b] : 0, vyb = b != STATIC ? s.vy[b] : 0;
+        double closing = (s.vx[a] - vxb) * cos + (s.vy[a] - vyb) * sin;
+        targetSpeed[k] = gap > 0 ? -gap / dt : closing < -BOUNCE_THRESHOLD ? -BodyStore.BOUNCE * closing : 0;
+
+        // The same impulses apply whichever way round the broad phase reports the pair
+        int slot = cache.find(contactKey);
+        normalImpulse[k] = slot >= 0 ? cache.normalImpulse(slot) : 0;
+        tangentImpulse[k] = slot >= 0 ? cache.tangentImpulse(slot) : 0;
+        rollingImpulse[k] = 0;
+    }
+
+    /**
+     * Lists the pairs that are contacts for {@link #getTouchingPair}, once every pair is prepared.
+     * @return How many there are.
+     */
+    public int collectTouchingPairs() {
+        int count = 0;
+        for (int k = 0; k < pairCount; k++) {
+            if (active[k]) touchingPairs[count++] = k;
+        }
+        return count;
+    }
+
+    public int getTouchingPair(int c) { return touchingPairs[c]; }
+
+    /** Applies the impulses pair {@code k} ended the last step with, if it was touching then. */
+    public void warmStart(int k) {
+        if (active[k] && (normalImpulse[k] != 0 || tangentImpulse[k] != 0)) apply(k, normalImpulse[k], tangentImpulse[k]);
+    }
+
+    /** {@link #warmStart} for the container contacts; call after the pairs. */
+    public void warmStartContainer() {
+        for (int k = pairCount; k < contactCount; k++) warmStart(k);
+    }
+
+    /** One velocity iteration for pair {@code k}: rolling resistance and friction, then the normal impulse that bounds them. */
+    public void solveVelocity(int k) {
+        if (!active[k]) return;
+        double[] vx = bodies.vx, vy = bodies.vy, w = bodies.angularVelocity;
+        int a = bodyA[k], b = bodyB[k];
+        double cos = nx[k], sin = ny[k];
+        double ima = invMassA[k], imb = invMassB[k], iia = invInertiaA[k], iib = invInertiaB[k];
+        double ra = bodies.radius[a], rb = bodies.radius[b];
+
+        double maxRolling = ROLLING_RESISTANCE * rollingRadius[k] * normalImpulse[k];
+        double jr = clamp(rollingImpulse[k] - (w[a] - w[b]) * rollingMass[k], maxRolling);
+        double djr = jr - rollingImpulse[k];
+        rollingImpulse[k] = jr;
+        w[a] += djr * iia;
+        w[b] -= djr * iib;
+
+        double sliding = -(vx[a] - vx[b]) * sin + (vy[a] - vy[b]) * cos - ra * w[a] - rb * w[b];
+        double jt = clamp(tangentImpulse[k] - sliding * tangentMass[k], FRICTION * normalImpulse[k]);
+        double djt = jt - tangentImpulse[k];
+        tangentImpulse[k] = jt;
+        vx[a] -= djt * sin * ima;
+        vy[a] += djt * cos * ima;
+        w[a] -= djt * ra * iia;
+        vx[b] += djt * sin * imb;
+        vy[b] -= djt * cos * imb;
+        w[b] -= djt * rb * iib;
+
+        double closing = (vx[a] - vx[b]) * cos + (vy[a] - vy[b]) * sin;
+        double jn = Math.max(0, normalImpulse[k] + (targetSpeed[k] - closing) * normalMass[k]);
+        double djn = jn - normalImpulse[k];
+        normalImpulse[k] = jn;
+        vx[a] += djn * cos * ima;
+        vy[a] += djn * sin * ima;
+        vx[b] -= djn * cos * imb;
+        vy[b] -= djn * sin * imb;
+    }
+
+    /** {@link #solveVelocity} for the container contacts; call after each iteration over the pairs. */
+    public void solveContainerVelocity() {
+        double[] vx = bodies.vx, vy = bodies.vy, w = bodies.angularVelocity;
+        for (int k = pairCount; k < contactCount; k++) {
+            int a = bodyA[k];
+            double cos = nx[k], sin = ny[k];
+            double ima = invMassA[k], iia = invInertiaA[k];
+            double ra = bodies.radius[a];
+
+            double maxRolling = ROLLING_RESISTANCE * rollingRadius[k] * normalImpulse[k];
+            double jr = clamp(rollingImpulse[k] - w[a] * rollingMass[k], maxRolling);
+            w[a] += (jr - rollingImpulse[k]) * iia;
+            rollingImpulse[k] = jr;
+
+            double sliding = -vx[a] * sin + vy[a] * cos - ra * w[a];
+            double jt = clamp(tangentImpulse[k] - sliding * tangentMass[k], FRICTION * normalImpulse[k]);
+            double djt = jt - tangentImpulse[k];
+            tangentImpulse[k] = jt;
+            vx[a] -= djt * sin * ima;
+            vy[a] += djt * cos * ima;
+            w[a] -= djt * ra * iia;
+
+            double closing = vx[a] * cos + vy[a] * sin;
+            double jn = Math.max(0, normalImpulse[k] + (targetSpeed[k] - closing) * normalMass[k]);
+            double djn = jn - normalImpulse[k];
+            normalImpulse[k] = jn;
+            vx[a] += djn * cos * ima;
+            vy[a] += djn * sin * ima;
+        }
+    }
+
+    /** One position iteration for pair {@code k}: pushes the balls apart, by inverse mass, out of most of their overlap. */
+    public void solvePosition(int k) {
+        if (!active[k]) return;
+        BodyStore s = bodies;
+        int a = bodyA[k], b = bodyB[k];
+        double dx = s.x[a] - s.x[b], dy = s.y[a] - s.y[b];
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        double overlap = s.radius[a] + s.radius[b] - distance - LINEAR_SLOP;
+        if (overlap <= 0 || distance == 0) return;
+        double ima = invMassA[k], imb = invMassB[k];
+        double push = POSITION_CORRECTION * overlap / ((ima + imb) * distance);
+        s.x[a] += push * ima * dx;
+        s.y[a] += push * ima * dy;
+        s.x[b] -= push * imb * dx;
+        s.y[b] -= push * imb * dy;
+    }
+
+    /** Remembers the impulses of every contact for the next step. */
+    public void finish() {
+        for (int k = 0; k < contactCount; k++) {
+            if (active[k]) cache.store(key[k], normalImpulse[k], tangentImpulse[k]);
+        }
+    }
+
+    // Impulse jn along the normal and jt along the tangent, on a at its contact point and the opposite on b
+    private void apply(int k, double jn, double jt) {
+        BodyStore s = bodies;
+        int a = bodyA[k], b = bodyB[k];
+        double cos = nx[k], sin = ny[k];
+        double px = jn * cos - jt * sin, py = jn * sin + jt * cos;
+        s.vx[a] += px * invMassA[k];
+        s.vy[a] += py * invMassA[k];
+        s.angularVelocity[a] -= s.radius[a] * jt * invInertiaA[k];
+        if (b != STATIC) {
+            s.vx[b] -= px * invMassB[k];
+            s.vy[b] -= py * invMassB[k];
+            s.angularVelocity[b] -= s.radius[b] * jt * invInertiaB[k];
+        }
+    }
+
+    private static double clamp(double value, double limit) {
+        return Math.max(-limit, Math.min(value, limit));
+    }
+
+    private void grow(int capacity) {
+        active = Arrays.copyOf(active, capacity);
+        bodyA = Arrays.copyOf(bodyA, capacity);
+        bodyB = Arrays.copyOf(bodyB, capacity);
+        key = Arrays.copyOf(key, capacity);
+        invMassA = Arrays.copyOf(invMassA, capacity);
+        invMassB = Arrays.copyOf(invMassB, capacity);
+        invInertiaA = Arrays.copyOf(invInertiaA, capacity);
+        invInertiaB = Arrays.copyOf(invInertiaB, capacity);
+        nx = Arrays.copyOf(nx, capacity);
+        ny = Arrays.copyOf(ny, capacity);
+        normalMass = Arrays.copyOf(normalMass, capacity);
+        tangentMass = Arrays.copyOf(tangentMass, capacity);
+        rollingMass = Arrays.copyOf(rollingMass, capacity);
+        rollingRadius = Arrays.copyOf(rollingRadius, capacity);
+        targetSpeed = Arrays.copyOf(targetSpeed, capacity);
+        normalImpulse = Arrays.copyOf(normalImpulse, capacity);
+        tangentImpulse = Arrays.copyOf(tangentImpulse, capacity);
+        rollingImpulse = Arrays.copyOf(rollingImpulse, capacity);
+    }
+}
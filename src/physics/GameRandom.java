@@ -0,0 +1,43 @@
+package physics;
+
+/**
+ * The linear congruential generator specified for {@link java.util.Random},
+ * with its 48-bit state exposed so a game in progress can be saved and resumed
+ * mid-sequence. For the same seed it yields exactly the values {@code Random} does.
+ */
+public final class GameRandom {
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    public GameRandom(long seed) {
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    private int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /** Uniform value in {@code [0, bound)}, as specified by {@link java.util.Random#nextInt(int)}. */
+    public int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("bound must be positive");
+        int r = next(31);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            r = (int) ((bound * (long) r) >> 31);
+        } else {
+            for (int u = r; u - (r = u % bound) + m < 0; u = next(31)) {
+                // reject values from the incomplete last block
+            }
+        }
+        return r;
+    }
+
+    /** The raw generator state, for snapshots. */
+    public long getState() { return state; }
+    public void setState(long state) { this.state = state & MASK; }
+}
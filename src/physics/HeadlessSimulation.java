@@ -0,0 +1,39 @@
+package physics;
+
+/**
+ * Runs a {@link SuikaWorld} flat out with no display, dropping a ball at a
+ * pseudo-random x every so often, and prints the achieved step rate.
+ * <p>
+ * Usage: {@code java physics.HeadlessSimulation [steps] [seed] [stepsBetweenDrops]}
+ */
+public final class HeadlessSimulation {
+
+    private static final double WIDTH = 500;
+    private static final double HEIGHT = 550;
+    private static final double DT = 1.0 / 120;
+
+    private HeadlessSimulation() {}
+
+    public static void main(String[] args) {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 120_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        int dropEvery = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        SuikaWorld world = new SuikaWorld(WIDTH, HEIGHT, seed);
+        // Drop positions come from their own sequence so they do not disturb the next-ball rolls
+        java.util.Random aim = new java.util.Random(seed ^ 0x5DEECE66DL);
+        long start = System.nanoTime();
+        int done = 0;
+        while (done < steps && !world.isGameOver()) {
+            if (done % dropEvery == 0) world.drop(aim.nextDouble() * WIDTH);
+            world.step(DT);
+            done++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("steps=%d (%.1f s simulated) in %.3f s -> %.0f steps/s%n",
+                done, done * DT, seconds, done / seconds);
+        System.out.printf("score=%d bodies=%d awake=%d gameOver=%b%n",
+                world.score(), world.bodyCount(), world.getAwakeBodyCount(), world.isGameOver());
+    }
+}
@@ -0,0 +1,173 @@
+package physics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs per-body and per-pair physics work on a {@link ForkJoinPool}.
+ * Candidate pairs are partitioned into islands that share no body; each island
+ * is handled by exactly one worker, in the same pair order the single-threaded
+ * loop uses, so the parallel result is bit-for-bit identical to the serial one.
+ * <p>
+ * The speedup is only as good as the islands are many: a settled pile is one
+ * contact island, so in a real game the pair work of a single pile runs on one
+ * worker and gets no parallelism; per-body work still splits evenly. The tasks
+ * are reused from step to step, so scheduling allocates nothing once warmed up.
+ */
+public final class IslandScheduler {
+
+    /** Work applied to one body index or one broad-phase pair index. */
+    @FunctionalInterface
+    public interface IndexTask {
+        void run(int index);
+    }
+
+    private static final int MIN_BODIES_PER_TASK = 64;
+
+    private final ForkJoinPool pool;
+    private final ContactIslands pairIslands = new ContactIslands();
+
+    private int[] denseIsland = new int[64];
+    private int[] islandStart = new int[64];
+    private int[] islandFill = new int[64];
+    private int[] orderedPairs = new int[64];
+    private int islandCount;
+    // Start of each batch of islands in orderedPairs, plus the end of the last
+    private int[] batchStart = new int[64];
+    private int batchCount;
+
+    // Reused for every call; a ForkJoinTask may run again once reinitialized
+    private Chunk[] chunks = new Chunk[0];
+    private int chunkCount;
+    private final ForkChunks forkChunks = new ForkChunks();
+
+    public IslandScheduler(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public IslandScheduler() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public int getParallelism() { return pool.getParallelism(); }
+
+    /** Number of independent islands found by the last {@link #forEachPairByIsland} call. */
+    public int getIslandCount() { return islandCount; }
+
+    /** Runs {@code task} for every index in {@code [0, count)}, split into contiguous ranges. */
+    public void forEachBody(int count, IndexTask task) {
+        int chunk = Math.max(MIN_BODIES_PER_TASK, count / (pool.getParallelism() * 4) + 1);
+        chunkCount = 0;
+        for (int from = 0; from < count; from += chunk) setChunk(from, Math.min(count, from + chunk), false, task);
+        runChunks();
+    }
+
+    /**
+     * Runs {@code task} for every pair of {@code pairs}. Pairs sharing a body,
+     * directly or through other pairs, run on the same worker in ascending order.
+     */
+    public void forEachPairByIsland(SpatialHash pairs, int bodyCount, IndexTask task) {
+        int pairCount = pairs.getPairCount();
+        pairIslands.reset(bodyCount);
+        for (int k = 0; k < pairCount; k++) pairIslands.union(pairs.getPairA(k), pairs.getPairB(k));
+
+        // Dense island ids in order of first appearance, then a stable counting sort of pairs by island.
+        if (denseIsland.length < bodyCount) denseIsland = new int[Math.max(bodyCount, denseIsland.length * 2)];
+        for (int i = 0; i < bodyCount; i++) denseIsland[i] = -1;
+        if (orderedPairs.length < pairCount) orderedPairs = new int[Math.max(pairCount, orderedPairs.length * 2)];
+        islandCount = 0;
+        for (int k = 0; k < pairCount; k++) {
+            int root = pairIslands.find(pairs.getPairA(k));
+            if (denseIsland[root] < 0) {
+                if (islandCount + 1 >= islandStart.length) {
+                    islandStart = Arrays.copyOf(islandStart, islandStart.length * 2);
+                    islandFill = Arrays.copyOf(islandFill, islandStart.length);
+                }
+                denseIsland[root] = islandCount++;
+            }
+        }
+        Arrays.fill(islandStart, 0, islandCount + 1, 0);
+        for (int k = 0; k < pairCount; k++) islandStart[denseIsland[pairIslands.find(pairs.getPairA(k))] + 1]++;
+        for (int s = 0; s < islandCount; s++) islandStart[s + 1] += islandStart[s];
+        System.arraycopy(islandStart, 0, islandFill, 0, islandCount);
+        for (int k = 0; k < pairCount; k++) {
+            orderedPairs[islandFill[denseIsland[pairIslands.find(pairs.getPairA(k))]]++] = k;
+        }
+
+        // Batch consecutive islands into tasks of roughly equal pair counts.
+        int target = Math.max(1, pairCount / (pool.getParallelism() * 4));
+        batchCount = 0;
+        batchStart[0] = 0;
+        int first = 0;
+        for (int s = 0; s < islandCount; s++) {
+            if (islandStart[s + 1] - islandStart[first] >= target || s == islandCount - 1) {
+                if (batchCount + 1 >= batchStart.length) batchStart = Arrays.copyOf(batchStart, batchStart.length * 2);
+                batchStart[++batchCount] = islandStart[s + 1];
+                first = s + 1;
+            }
+        }
+        forEachPairOfLastIslands(task);
+    }
+
+    /**
+     * Runs {@code task} for every pair again, partitioned as by the last
+     * {@link #forEachPairByIsland} call, for solvers that sweep the same pairs
+     * several times. The pairs must not have changed since.
+     */
+    public void forEachPairOfLastIslands(IndexTask task) {
+        chunkCount = 0;
+        for (int b = 0; b < batchCount; b++) setChunk(batchStart[b], batchStart[b + 1], true, task);
+        runChunks();
+    }
+
+    private void setChunk(int from, int to, boolean ordered, IndexTask task) {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(8, chunks.length * 2));
+            for (int c = chunkCount; c < chunks.length; c++) chunks[c] = new Chunk();
+        }
+        Chunk chunk = chunks[chunkCount++];
+        chunk.reinitialize();
+        chunk.from = from;
+        chunk.to = to;
+        chunk.ordered = ordered;
+        chunk.task = task;
+    }
+
+    private void runChunks() {
+        if (chunkCount == 0) return;
+        forkChunks.reinitialize();
+        pool.invoke(forkChunks);
+        // Not kept alive by the reused tasks until the next call
+        for (int c = 0; c < chunkCount; c++) chunks[c].task = null;
+    }
+
+    private final class ForkChunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            for (int c = chunkCount - 1; c > 0; c--) chunks[c].fork();
+            chunks[0].invoke();
+            for (int c = 1; c < chunkCount; c++) chunks[c].join();
+        }
+    }
+
+    // A contiguous range of body indices, or of positions in orderedPairs
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        int from, to;
+        boolean ordered;
+        transient IndexTask task;
+
+        @Override
+        protected void compute() {
+            if (ordered) {
+                for (int p = from; p < to; p++) task.run(orderedPairs[p]);
+            } else {
+                for (int i = from; i < to; i++) task.run(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package physics;
+
+import java.util.Arrays;
+import shapes.BallType;
+
+/**
+ * Turns same-type contacts found by the collision pass into merges.
+ * Contacts are bucketed by {@link BallType} and drained from the smallest type
+ * up; each merged ball immediately looks for a same-type neighbour and queues
+ * that contact in the next bucket, so a whole chain reaction resolves in one
+ * pass. Points and merge counts accumulate until {@link #takeEvent()}.
+ */
+public final class MergeQueue {
+
+    /** Balls merge when their centers are within this factor of their combined radii. */
+    public static final double MERGE_RANGE = 1.02;
+
+    private static final BallType[] TYPES = BallType.values();
+
+    // Pair indices flagged by the collision pass; one writer per pair, so safe from island workers
+    private boolean[] pairFlagged = new boolean[64];
+
+    private final int[][] bucketA = new int[TYPES.length][8];
+    private final int[][] bucketB = new int[TYPES.length][8];
+    private final int[] bucketSize = new int[TYPES.length];
+
+    private boolean[] consumed = new boolean[64];
+    private int[] depth = new int[64];
+    private int[] spawned = new int[16];
+    private int[] nearby = new int[64];
+
+    // Batched event for everything merged since the last takeEvent()
+    private int eventPoints, eventMerges, eventMaxDepth;
+    private double eventX;
+    // Type merged and cascade depth of each merge in the batch, in the order they happened
+    private byte[] eventFromTypes = new byte[16];
+    private int[] eventDepths = new int[16];
+    // Set by any offer this pass; only ever written true, so racing parallel offers agree
+    private boolean anyOffered;
+
+    /** Clears the flags for a new set of {@code pairCount} broad-phase pairs. */
+    public void beginPass(int pairCount) {
+        if (pairFlagged.length < pairCount) pairFlagged = new boolean[Math.max(pairCount, pairFlagged.length * 2)];
+        else Arrays.fill(pairFlagged, 0, pairCount, false);
+        anyOffered = false;
+    }
+
+    /** Records that pair {@code k} is a same-type contact within merge range. */
+    public void offer(int k) {
+        pairFlagged[k] = true;
+        anyOffered = true;
+    }
+
+    /** True if any pair was offered this pass, i.e. {@link #process} has work to do. */
+    public boolean hasOffers() {
+        return anyOffered;
+    }
+
+    /** True when bodies {@code a} and {@code b} are the same type and close enough to merge. */
+    public static boolean canMerge(BodyStore bodies, int a, int b) {
+        if (bodies.type[a] != bodies.type[b]) return false;
+        double dx = bodies.x[a] - bodies.x[b], dy = bodies.y[a] - bodies.y[b];
+        double range = (bodies.radius[a] + bodies.radius[b]) * MERGE_RANGE;
+        return dx * dx + dy * dy < range * range;
+    }
+
+    /**
+     * Performs every flagged merge and the cascades they trigger, then compacts
+     * {@code bodies}. {@code hash} must be the build the flags refer to.
+     * @return The number of merges performed.
+     */
+    public int process(BodyStore bodies, SpatialHash hash) {
+        int n = bodies.size();
+        Arrays.fill(bucketSize, 0);
+        boolean any = false;
+        for (int k = 0, pairs = hash.getPairCount(); k < pairs; k++) {
+            if (!pairFlagged[k]) continue;
+            int a = hash.getPairA(k), b = hash.getPairB(k);
+            push(bodies.type[a], a, b);
+            any = true;
+        }
+        if (!any) return 0;
+
+        ensureBodyCapacity(n * 2);
+        Arrays.fill(consumed, 0, n, false);
+        Arrays.fill(depth, 0, n, 0);
+        int spawnedCount = 0;
+        int merges = 0;
+
+        for (int t = 0; t < TYPES.length; t++) {
+            // Entries appended to this bucket while draining it are picked up too
+            for (int e = 0; e < bucketSize[t]; e++) {
+                int a = bucketA[t][e], b = bucketB[t][e];
+                if (consumed[a] || consumed[b] || !canMerge(bodies, a, b)) continue;
+                consumed[a] = true;
+                consumed[b] = true;
+                // Whatever was resting on or against either ball loses its support
+                wakeContactsOf(bodies, hash, a);
+                wakeContactsOf(bodies, hash, b);
+                int d = Math.max(depth[a], depth[b]);
+                recordMerge(eventMerges + merges, t, d + 1);
+                merges++;
+                eventMaxDepth = Math.max(eventMaxDepth, d + 1);
+                eventX = (bodies.x[a] + bodies.x[b]) / 2;
+
+                BallType nextType = BallType.getNext(TYPES[t]);
+                if (nextType == null) {
+                    eventPoints += BallType.LEVEL_10.scoreValue * 2;
+                    continue;
+                }
+                eventPoints += nextType.scoreValue;
+                int c = bodies.add(nextType, (bodies.x[a] + bodies.x[b]) / 2, (bodies.y[a] + bodies.y[b]) / 2);
+                ensureBodyCapacity(c + 1);
+                consumed[c] = false;
+                depth[c] = d + 1;
+                queueCascade(bodies, hash, c, spawned, spawnedCount);
+                if (spawnedCount == spawned.length) spawned = Arrays.copyOf(spawned, spawnedCount * 2);
+                spawned[spawnedCount++] = c;
+            }
+        }
+        eventMerges += merges;
+
+        // Highest index first, so every body swapped into a freed slot is a survivor.
+        for (int i = bodies.size() - 1; i >= 0; i--) {
+            if (consumed[i]) bodies.remove(i);
+        }
+        return merges;
+    }
+
+    /**
+     * Wakes body {@code i}'s sleep group and disturbs every body touching it or
+     * within contact slop of it, asleep or not, so nothing it held up can sleep on
+     * in mid-air once it is gone.
+     */
+    private void wakeContactsOf(BodyStore bodies, SpatialHash hash, int i) {
+        bodies.disturb(i);
+        if (nearby.length < bodies.size()) nearby = new int[bodies.size() * 2];
+        double reach = bodies.radius[i] + SuikaWorld.CONTACT_SLOP;
+        int found = hash.query(bodies.x[i], bodies.y[i], reach, nearby);
+        for (int f = 0; f < found; f++) {
+            int j = nearby[f];
+            double dx = bodies.x[j] - bodies.x[i], dy = bodies.y[j] - bodies.y[i];
+            double touch = reach + bodies.radius[j];
+            if (j != i && dx * dx + dy * dy < touch * touch) bodies.disturb(j);
+        }
+    }
+
+    /** Queues contacts between freshly merged body {@code c} and same-type neighbours. */
+    private void queueCascade(BodyStore bodies, SpatialHash hash, int c, int[] spawned, int spawnedCount) {
+        int t = bodies.type[c];
+        if (nearby.length < bodies.size()) nearby = new int[bodies.size() * 2];
+        int found = hash.query(bodies.x[c], bodies.y[c], bodies.radius[c] * 2 * MERGE_RANGE, nearby);
+        for (int f = 0; f < found; f++) {
+            int j = nearby[f];
+            if (!consumed[j] && canMerge(bodies, c, j)) push(t, Math.min(c, j), Math.max(c, j));
+        }
+        // Other balls made this pass are not in the grid yet
+        for (int s = 0; s < spawnedCount; s++) {
+            int j = spawned[s];
+            if (!consumed[j] && canMerge(bodies, c, j)) push(t, j, c);
+        }
+    }
+
+    private void push(int t, int a, int b) {
+        int size = bucketSize[t];
+        if (size == bucketA[t].length) {
+            bucketA[t] = Arrays.copyOf(bucketA[t], size * 2);
+            bucketB[t] = Arrays.copyOf(bucketB[t], size * 2);
+        }
+        bucketA[t][size] = a;
+        bucketB[t][size] = b;
+        bucketSize[t] = size + 1;
+    }
+
+    private void recordMerge(int index, int type, int cascadeDepth) {
+        if (index == eventDepths.length) {
+            eventFromTypes = Arrays.copyOf(eventFromTypes, index * 2);
+            eventDepths = Arrays.copyOf(eventDepths, index * 2);
+        }
+        eventFromTypes[index] = (byte) type;
+        eventDepths[index] = cascadeDepth;
+    }
+
+    private void ensureBodyCapacity(int n) {
+        if (consumed.length >= n) return;
+        int cap = Math.max(n, consumed.length * 2);
+        consumed = Arrays.copyOf(consumed, cap);
+        depth = Arrays.copyOf(depth, cap);
+    }
+
+    /**
+     * Returns the merges accumulated since the last call as one event and resets
+     * the accumulator, or null if nothing merged.
+     */
+    public MergeEvent takeEvent() {
+        if (eventMerges == 0) return null;
+        MergeEvent event = new MergeEvent(eventMerges, eventPoints, eventMaxDepth, eventX,
+                Arrays.copyOf(eventFromTypes, eventMerges), Arrays.copyOf(eventDepths, eventMerges));
+        eventMerges = 0;
+        eventPoints = 0;
+        eventMaxDepth = 0;
+        return event;
+    }
+
+    /** One batch of merges: a single drop's whole chain reaction within a step. */
+    public static final class MergeEvent {
+        public final int merges;
+        public final int points;
+        public final int cascadeDepth;
+        /** Center x of the last merge in the batch, for positioning effects. */
+        public final double x;
+
+        private final byte[] fromTypes;
+        private final int[] depths;
+
+        MergeEvent(int merges, int points, int cascadeDepth, double x, byte[] fromTypes, int[] depths) {
+            this.merges = merges;
+            this.points = points;
+            this.cascadeDepth = cascadeDepth;
+            this.x = x;
+            this.fromTypes = fromTypes;
+            this.depths = depths;
+        }
+
+        /** The type of the two balls that made merge {@code k} of the batch. */
+        public BallType getFromType(int k) { return TYPES[fromTypes[k]]; }
+
+        /** How far down its chain reaction merge {@code k} happened, 1 for a direct contact. */
+        public int getDepth(int k) { return depths[k]; }
+    }
+}
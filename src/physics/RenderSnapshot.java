@@ -0,0 +1,108 @@
+package physics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import shapes.BallType;
+
+/**
+ * Everything the painter needs for one frame, copied out of a {@link SuikaWorld}
+ * with interpolation already applied. Snapshots are only ever written by the
+ * simulation thread and only ever read by the painter, never both at once:
+ * they move between the two through a {@link Exchange}.
+ */
+public final class RenderSnapshot {
+
+    private static final BallType[] TYPES = BallType.values();
+
+    // Interpolated centers and rotation, plus the radius and type ordinal of each body
+    private double[] x = new double[0], y = new double[0], angle = new double[0], radius = new double[0];
+    private byte[] type = new byte[0];
+    private int count;
+    private BallType nextBall;
+    private int score;
+    private boolean gameOver;
+    private long tick;
+
+    // Set by the writer before publishing, cleared by the reader on hand-back
+    private volatile boolean fresh;
+
+    private RenderSnapshot() {}
+
+    private void copyFrom(SuikaWorld world, double alpha) {
+        BodyStore bodies = world.bodies();
+        int n = bodies.size();
+        if (x.length < n) {
+            int capacity = Math.max(n, x.length * 2);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            angle = Arrays.copyOf(angle, capacity);
+            radius = Arrays.copyOf(radius, capacity);
+            type = Arrays.copyOf(type, capacity);
+        }
+        for (int i = 0; i < n; i++) {
+            x[i] = bodies.prevX[i] + (bodies.x[i] - bodies.prevX[i]) * alpha;
+            y[i] = bodies.prevY[i] + (bodies.y[i] - bodies.prevY[i]) * alpha;
+            angle[i] = bodies.prevAngle[i] + (bodies.angle[i] - bodies.prevAngle[i]) * alpha;
+            radius[i] = bodies.radius[i];
+            type[i] = bodies.type[i];
+        }
+        count = n;
+        nextBall = world.getNextBall();
+        score = world.score();
+        gameOver = world.isGameOver();
+        tick = world.getTick();
+    }
+
+    public int size() { return count; }
+    public double getX(int i) { return x[i]; }
+    public double getY(int i) { return y[i]; }
+    public double getAngle(int i) { return angle[i]; }
+    public double getRadius(int i) { return radius[i]; }
+    public BallType getType(int i) { return TYPES[type[i]]; }
+    public BallType getNextBall() { return nextBall; }
+    public int score() { return score; }
+    public boolean isGameOver() { return gameOver; }
+    public long getTick() { return tick; }
+
+    /**
+     * Lock-free triple buffer between one writer and one reader. The writer fills its
+     * back buffer and swaps it into the middle slot; the reader swaps its front buffer
+     * for the middle one whenever that holds a newer frame. Each side owns one buffer
+     * outright at all times, so neither ever waits for the other.
+     * <p>
+     * {@link #acquire()} must only be called from one thread at a time; other threads
+     * can still poll the latest score and game-over state.
+     */
+    public static final class Exchange {
+
+        private final AtomicReference<RenderSnapshot> middle = new AtomicReference<>(new RenderSnapshot());
+        private RenderSnapshot back = new RenderSnapshot();  // writer-owned
+        private RenderSnapshot front = new RenderSnapshot(); // reader-owned
+        private volatile int latestScore;
+        private volatile boolean latestGameOver;
+
+        /** Writer side: copies the world's current frame and makes it the latest. */
+        public void publish(SuikaWorld world, double alpha) {
+            back.copyFrom(world, alpha);
+            back.fresh = true;
+            latestScore = back.score;
+            latestGameOver = back.gameOver;
+            back = middle.getAndSet(back);
+        }
+
+        /** Reader side: returns the newest published frame, or the previous one if nothing is new. */
+        public RenderSnapshot acquire() {
+            if (middle.get().fresh) {
+                front.fresh = false;
+                front = middle.getAndSet(front);
+            }
+            return front;
+        }
+
+        /** Score of the newest published frame; safe from any thread. */
+        public int latestScore() { return latestScore; }
+
+        /** Whether the newest published frame is game over; safe from any thread. */
+        public boolean isGameOver() { return latestGameOver; }
+    }
+}
@@ -0,0 +1,192 @@
+package physics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import shapes.BallType;
+
+/**
+ * A recorded game: the world's seed and container, every accepted drop, and the
+ * tick and score it ended on. Because {@link SuikaWorld} is deterministic for a
+ * fixed step, replaying the drops at their ticks reproduces the game exactly.
+ * <p>
+ * File layout (all integers unsigned LEB128 varints unless noted):
+ * <pre>
+ *   "SKRP" magic, version byte
+ *   seed (8 bytes, big-endian), physicsHz, solverIterations, width, height, dropCount
+ *   per drop: (tickDelta &lt;&lt; 4 | typeOrdinal), zigzag(xDelta)
+ *   endTick - lastDropTick, finalScore
+ * </pre>
+ * A typical drop takes three bytes. Versions 1 and 2 were recorded with the
+ * position-only contact solver the engine no longer has, so they cannot be
+ * played back.
+ */
+public final class Replay {
+
+    private static final byte[] MAGIC = {'S', 'K', 'R', 'P'};
+    private static final int VERSION = 3;
+
+    public final long seed;
+    public final int physicsHz;
+    public final int solverIterations;
+    public final int width, height;
+    private final long[] dropTicks;
+    private final int[] dropX;
+    private final byte[] dropTypes;
+    public final long endTick;
+    public final int finalScore;
+
+    Replay(long seed, int physicsHz, int solverIterations, int width, int height, long[] dropTicks, int[] dropX, byte[] dropTypes,
+           long endTick, int finalScore) {
+        this.seed = seed;
+        this.physicsHz = physicsHz;
+        this.solverIterations = solverIterations;
+        this.width = width;
+        this.height = height;
+        this.dropTicks = dropTicks;
+        this.dropX = dropX;
+        this.dropTypes = dropTypes;
+        this.endTick = endTick;
+        this.finalScore = finalScore;
+    }
+
+    public int getDropCount() { return dropTicks.length; }
+    /** Tick at whose start drop {@code i} was applied, before that tick's step. */
+    public long getDropTick(int i) { return dropTicks[i]; }
+    public int getDropX(int i) { return dropX[i]; }
+    public BallType getDropType(int i) { return BallType.values()[dropTypes[i]]; }
+
+    /** Collects drops as a game is played and encodes them once it ends. */
+    public static final class Recorder {
+        private final long seed;
+        private final int physicsHz, solverIterations, width, height;
+        private long[] ticks = new long[64];
+        private int[] xs = new int[64];
+        private byte[] types = new byte[64];
+        private int count;
+
+        public Recorder(long seed, int physicsHz, int solverIterations, int width, int height) {
+            this.seed = seed;
+            this.physicsHz = physicsHz;
+            this.solverIterations = solverIterations;
+            this.width = width;
+            this.height = height;
+        }
+
+        public void recordDrop(long tick, int x, BallType type) {
+            if (count == ticks.length) {
+                ticks = Arrays.copyOf(ticks, count * 2);
+                xs = Arrays.copyOf(xs, count * 2);
+                types = Arrays.copyOf(types, count * 2);
+            }
+            ticks[count] = tick;
+            xs[count] = x;
+            types[count] = (byte) type.ordinal();
+            count++;
+        }
+
+        public Replay finish(long endTick, int finalScore) {
+            return new Replay(seed, physicsHz, solverIterations, width, height, Arrays.copyOf(ticks, count), Arrays.copyOf(xs, count),
+                    Arrays.copyOf(types, count), endTick, finalScore);
+        }
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + dropTicks.length * 3);
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(VERSION);
+        for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (seed >>> shift));
+        writeVarLong(out, physicsHz);
+        writeVarLong(out, solverIterations);
+        writeVarLong(out, width);
+        writeVarLong(out, height);
+        writeVarLong(out, dropTicks.length);
+        long lastTick = 0;
+        int lastX = 0;
+        for (int i = 0; i < dropTicks.length; i++) {
+            writeVarLong(out, (dropTicks[i] - lastTick) << 4 | dropTypes[i]);
+            writeVarLong(out, zigzag(dropX[i] - lastX));
+            lastTick = dropTicks[i];
+            lastX = dropX[i];
+        }
+        writeVarLong(out, endTick - lastTick);
+        writeVarLong(out, finalScore);
+        return out.toByteArray();
+    }
+
+    public static Replay decode(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            for (byte b : MAGIC) {
+                if (in.get() != b) throw new IOException("Not a replay file");
+            }
+            int version = in.get();
+            if (version == 1 || version == 2) throw new IOException("Replay version " + version + " was recorded with the old contact solver and cannot be played back");
+            if (version != VERSION) throw new IOException("Unsupported replay version " + version);
+            long seed = in.getLong();
+            int hz = (int) readVarLong(in);
+            int iterations = (int) readVarLong(in);
+            int width = (int) readVarLong(in);
+            int height = (int) readVarLong(in);
+            int count = (int) readVarLong(in);
+            long[] ticks = new long[count];
+            int[] xs = new int[count];
+            byte[] types = new byte[count];
+            long tick = 0;
+            int x = 0;
+            for (int i = 0; i < count; i++) {
+                long packed = readVarLong(in);
+                tick += packed >>> 4;
+                types[i] = (byte) (packed & 0xF);
+                x += unzigzag(readVarLong(in));
+                ticks[i] = tick;
+                xs[i] = x;
+            }
+            long endTick = tick + readVarLong(in);
+            int score = (int) readVarLong(in);
+            return new Replay(seed, hz, iterations, width, height, ticks, xs, types, endTick, score);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("Truncated replay file", e);
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Files.write(file, encode());
+    }
+
+    public static Replay read(Path file) throws IOException {
+        return decode(Files.readAllBytes(file));
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Malformed varint in replay");
+    }
+
+    private static long zigzag(int value) {
+        return Integer.toUnsignedLong((value << 1) ^ (value >> 31));
+    }
+
+    private static int unzigzag(long value) {
+        int v = (int) value;
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,81 @@
+package physics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import shapes.BallType;
+
+/**
+ * Re-simulates a {@link Replay} headlessly, as fast as the CPU allows.
+ * <p>
+ * Usage: {@code java physics.ReplayPlayer <file.rpl>}
+ */
+public final class ReplayPlayer {
+
+    private final Replay replay;
+    private final SuikaWorld world;
+    private final double dt;
+    private int nextDrop;
+
+    public ReplayPlayer(Replay replay) {
+        this.replay = replay;
+        this.world = new SuikaWorld(replay.width, replay.height, replay.seed);
+        world.setSolverIterations(replay.solverIterations);
+        this.dt = 1.0 / replay.physicsHz;
+    }
+
+    /**
+     * Applies the drops due at the current tick and advances one step.
+     * @return False once the recorded end of the game has been reached.
+     */
+    public boolean step() {
+        if (isFinished()) return false;
+        while (nextDrop < replay.getDropCount() && replay.getDropTick(nextDrop) == world.getTick()) {
+            BallType dropped = world.drop(replay.getDropX(nextDrop));
+            if (dropped != replay.getDropType(nextDrop)) {
+                throw new IllegalStateException("Replay diverged at drop " + nextDrop + ": expected "
+                        + replay.getDropType(nextDrop) + " but the world rolled " + dropped);
+            }
+            nextDrop++;
+        }
+        world.step(dt);
+        return true;
+    }
+
+    /** Plays the remainder of the replay. */
+    public SuikaWorld playToEnd() {
+        while (step()) {
+            // keep stepping
+        }
+        return world;
+    }
+
+    public boolean isFinished() {
+        return world.getTick() >= replay.endTick || world.isGameOver();
+    }
+
+    /** True when the re-simulated game ended on the recorded score. */
+    public boolean matchesRecording() {
+        return isFinished() && world.score() == replay.finalScore;
+    }
+
+    public SuikaWorld getWorld() { return world; }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java physics.ReplayPlayer <file.rpl>");
+            System.exit(2);
+        }
+        Replay replay = Replay.read(Path.of(args[0]));
+        ReplayPlayer player = new ReplayPlayer(replay);
+        long start = System.nanoTime();
+        SuikaWorld world = player.playToEnd();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double simulated = world.getTick() / (double) replay.physicsHz;
+
+        System.out.printf("drops=%d ticks=%d (%.1f s of play) replayed in %.3f s (%.0fx real time)%n",
+                replay.getDropCount(), world.getTick(), simulated, seconds, simulated / Math.max(seconds, 1e-9));
+        System.out.printf("score=%d recorded=%d gameOver=%b -> %s%n", world.score(), replay.finalScore,
+                world.isGameOver(), player.matchesRecording() ? "MATCH" : "MISMATCH");
+        if (!player.matchesRecording()) System.exit(1);
+    }
+}
@@ -0,0 +1,111 @@
+package physics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks that sleeping never leaves a ball hanging in mid-air. Plays a number of
+ * seeded headless games the way {@link HeadlessSimulation} does and, after every
+ * step, looks for sleeping balls with neither the floor nor another ball under
+ * them. Once one has stayed like that for {@link #HANGING_STEPS} steps in a row,
+ * the world is restored from a snapshot with every body awake and run on for a
+ * second; if the ball then falls, it was hanging and is reported. Then checks
+ * that sleeping still pays off: a {@link StressScene} pile left to settle must
+ * have at least {@link #MIN_SETTLED_ASLEEP} of its balls asleep, however many
+ * still creep. Exits with status 1 if either check fails.
+ * <p>
+ * Usage: {@code java physics.SleepCheck [games] [seconds] [stepsBetweenDrops]}
+ */
+public final class SleepCheck {
+
+    private static final double WIDTH = 500;
+    private static final double HEIGHT = 550;
+    private static final double DT = 1.0 / 120;
+    // Long enough that a ball merely passing over a gap is not counted
+    private static final int HANGING_STEPS = 30;
+    // Falling further than this once woken means nothing was holding the ball up
+    private static final double FALL_DISTANCE = 25;
+    // The settled pile: no drops and no merges, so nothing but settling keeps a ball awake
+    private static final int SETTLED_BALLS = 1500;
+    private static final double SETTLE_SECONDS = 30;
+    private static final double MIN_SETTLED_ASLEEP = 0.9;
+
+    private SleepCheck() {}
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 120;
+        int dropEvery = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        int hanging = 0;
+        for (int game = 0; game < games; game++) {
+            long seed = game + 1;
+            SuikaWorld world = new SuikaWorld(WIDTH, HEIGHT, seed);
+            Random aim = new Random(seed ^ 0x5DEECE66DL);
+            // Steps each body has spent asleep with nothing under it, by body id
+            Map<Integer, Integer> unsupportedSteps = new HashMap<>();
+            int found = 0;
+            for (int step = 0; step < seconds / DT && !world.isGameOver(); step++) {
+                if (step % dropEvery == 0) world.drop(aim.nextDouble() * WIDTH);
+                world.step(DT);
+                BodyStore bodies = world.bodies();
+                Map<Integer, Integer> stillUnsupported = new HashMap<>();
+                for (int i = 0; i < bodies.size(); i++) {
+                    if (!bodies.isAsleep(i) || isSupported(bodies, i, world.getHeight())) continue;
+                    int steps = unsupportedSteps.getOrDefault(bodies.getId(i), 0) + 1;
+                    stillUnsupported.put(bodies.getId(i), steps);
+                    if (steps == HANGING_STEPS && fallsWhenWoken(world, i)) {
+                        found++;
+                        System.out.printf("seed %d, %.2f s: %s at (%.1f, %.1f) asleep with nothing under it%n",
+                                seed, (step + 1) * DT, bodies.getType(i), bodies.getX(i), bodies.getY(i));
+                    }
+                }
+                unsupportedSteps = stillUnsupported;
+            }
+            hanging += found;
+        }
+        System.out.printf("%d games of %d s: %d balls left hanging asleep%n", games, seconds, hanging);
+
+        SuikaWorld pile = new StressScene(SETTLED_BALLS, 0, false).createWorld();
+        for (int step = 0; step < SETTLE_SECONDS / DT; step++) pile.step(DT);
+        BodyStore bodies = pile.bodies();
+        double asleep = (double) bodies.getSleepingCount() / bodies.size();
+        System.out.printf("%d-ball pile after %.0f s: %d asleep (%.1f%%, at least %.0f%% expected)%n",
+                bodies.size(), SETTLE_SECONDS, bodies.getSleepingCount(), asleep * 100, MIN_SETTLED_ASLEEP * 100);
+        if (hanging > 0 || asleep < MIN_SETTLED_ASLEEP) System.exit(1);
+    }
+
+    // Snapshots drop sleep state, so the copy starts with every body awake
+    private static boolean fallsWhenWoken(SuikaWorld world, int i) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(WorldSnapshot.byteSize(world));
+        WorldSnapshot.write(world, buffer);
+        SuikaWorld copy = WorldSnapshot.read(buffer.flip());
+        // Restored bodies are added in index order, so body i gets id i + 1
+        int id = i + 1;
+        double startY = world.bodies().getY(i);
+        for (int step = 0; step < 1 / DT; step++) {
+            copy.step(DT);
+            BodyStore bodies = copy.bodies();
+            for (int j = 0; j < bodies.size(); j++) {
+                if (bodies.getId(j) == id && bodies.getY(j) - startY > FALL_DISTANCE) return true;
+            }
+        }
+        return false;
+    }
+
+    // Resting on the floor, or touching a ball whose center is lower down
+    private static boolean isSupported(BodyStore bodies, int i, double floorY) {
+        double r = bodies.getRadius(i);
+        if (bodies.getY(i) + r >= floorY - SuikaWorld.CONTACT_SLOP) return true;
+        for (int j = 0; j < bodies.size(); j++) {
+            if (j == i || bodies.getY(j) <= bodies.getY(i)) continue;
+            double dx = bodies.getX(j) - bodies.getX(i), dy = bodies.getY(j) - bodies.getY(i);
+            double reach = r + bodies.getRadius(j) + SuikaWorld.CONTACT_SLOP;
+            if (dx * dx + dy * dy < reach * reach) return true;
+        }
+        return false;
+    }
+}
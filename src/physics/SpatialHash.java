@@ -0,0 +1,197 @@
+package physics;
+
+import java.util.Arrays;
+import shapes.BallType;
+
+/**
+ * Uniform-grid broad phase for circle bodies.
+ * Every body is inserted into each cell its (inflated) bounding box touches, and
+ * a pair is reported only from the cell holding the top-left corner of the two
+ * boxes' intersection, so no pair is emitted twice and no dedup set is needed.
+ * All storage is reused between builds; nothing is allocated once the arrays
+ * have grown to the scene size.
+ */
+public final class SpatialHash {
+
+    /** Cell edge length, sized from the largest ball so a cell never holds less than one radius. */
+    public static final double DEFAULT_CELL_SIZE = maxRadius();
+
+    private final double cellSize;
+    private final double inflate;
+    private final double skin;
+
+    private int cols, rows;
+    private int[] cellStart = new int[0];
+    private int[] cellFill = new int[0];
+    private int[] cellItems = new int[64];
+
+    private int[] minCol = new int[16], maxCol = new int[16], minRow = new int[16], maxRow = new int[16];
+    private double[] minX = new double[16], minY = new double[16], maxX = new double[16], maxY = new double[16];
+
+    private int[] pairA = new int[64], pairB = new int[64];
+    private int pairCount;
+    private int bodyCount;
+
+    // Per-body stamp so a query reports a body once even if it spans several cells
+    private int[] queryStamp = new int[16];
+    private int queryId;
+
+    /**
+     * @param cellSize Edge length of a grid cell in pixels.
+     * @param inflate  Factor applied to each radius, so pairs just outside contact (merge range) are kept.
+     * @param skin     Extra pixels added to every box to cover movement between build and use.
+     */
+    public SpatialHash(double cellSize, double inflate, double skin) {
+        this.cellSize = cellSize;
+        this.inflate = inflate;
+        this.skin = skin;
+    }
+
+    public SpatialHash() {
+        this(DEFAULT_CELL_SIZE, 1.02, 2.0);
+    }
+
+    /**
+     * Rebuilds the grid and the candidate pair list from body centers and radii.
+     * Only the first {@code count} entries of each array are read.
+     */
+    public void build(double[] cx, double[] cy, double[] radius, int count, double width, double height) {
+        build(cx, cy, radius, null, count, width, height);
+    }
+
+    /**
+     * As {@link #build(double[], double[], double[], int, double, double)}, but skips
+     * pairs in which both bodies are flagged in {@code asleep} (may be null).
+     */
+    public void build(double[] cx, double[] cy, double[] radius, boolean[] asleep, int count, double width, double height) {
+        bodyCount = count;
+        pairCount = 0;
+        cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        int cells = cols * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+            cellFill = new int[cells];
+        } else {
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+        ensureBodyCapacity(count);
+
+        // Pass 1: bounding boxes and per-cell counts.
+        int entries = 0;
+        for (int i = 0; i < count; i++) {
+            double r = radius[i] * inflate + skin;
+            minX[i] = cx[i] - r; maxX[i] = cx[i] + r;
+            minY[i] = cy[i] - r; maxY[i] = cy[i] + r;
+            minCol[i] = col(minX[i]); maxCol[i] = col(maxX[i]);
+            minRow[i] = row(minY[i]); maxRow[i] = row(maxY[i]);
+            for (int rr = minRow[i]; rr <= maxRow[i]; rr++) {
+                for (int cc = minCol[i]; cc <= maxCol[i]; cc++) {
+                    cellStart[rr * cols + cc + 1]++;
+                    entries++;
+                }
+            }
+        }
+
+        // Pass 2: prefix sums, then scatter body indices (ascending within each cell).
+        for (int c = 0; c < cells; c++) cellStart[c + 1] += cellStart[c];
+        if (cellItems.length < entries) cellItems = new int[Math.max(entries, cellItems.length * 2)];
+        System.arraycopy(cellStart, 0, cellFill, 0, cells);
+        for (int i = 0; i < count; i++) {
+            for (int rr = minRow[i]; rr <= maxRow[i]; rr++) {
+                for (int cc = minCol[i]; cc <= maxCol[i]; cc++) {
+                    cellItems[cellFill[rr * cols + cc]++] = i;
+                }
+            }
+        }
+
+        // Pass 3: emit overlapping pairs from their owning cell only.
+        for (int c = 0; c < cells; c++) {
+            int start = cellStart[c], end = cellStart[c + 1];
+            for (int p = start; p < end; p++) {
+                int a = cellItems[p];
+                for (int q = p + 1; q < end; q++) {
+                    int b = cellItems[q];
+                    if (asleep != null && asleep[a] && asleep[b]) continue;
+                    if (maxX[a] < minX[b] || maxX[b] < minX[a] || maxY[a] < minY[b] || maxY[b] < minY[a]) continue;
+                    int ownerCell = row(Math.max(minY[a], minY[b])) * cols + col(Math.max(minX[a], minX[b]));
+                    if (ownerCell != c) continue;
+                    addPair(a, b);
+                }
+            }
+        }
+    }
+
+    /** Rebuilds the grid from every live body in {@code bodies}, ignoring sleeping pairs. */
+    public void build(BodyStore bodies, double width, double height) {
+        build(bodies.x, bodies.y, bodies.radius, bodies.asleep, bodies.size(), width, height);
+    }
+
+    /**
+     * Collects into {@code out} every body from the last build whose grid cells
+     * overlap the square of half-size {@code reach} around (cx, cy).
+     * @return The number of indices written, at most {@code out.length}.
+     */
+    public int query(double cx, double cy, double reach, int[] out) {
+        if (queryStamp.length < bodyCount) queryStamp = new int[Math.max(bodyCount, queryStamp.length * 2)];
+        if (++queryId == Integer.MAX_VALUE) {
+            Arrays.fill(queryStamp, 0);
+            queryId = 1;
+        }
+        int found = 0;
+        int c0 = col(cx - reach), c1 = col(cx + reach), r0 = row(cy - reach), r1 = row(cy + reach);
+        for (int rr = r0; rr <= r1; rr++) {
+            for (int cc = c0; cc <= c1; cc++) {
+                int cell = rr * cols + cc;
+                for (int p = cellStart[cell], end = cellStart[cell + 1]; p < end; p++) {
+                    int i = cellItems[p];
+                    if (queryStamp[i] == queryId) continue;
+                    queryStamp[i] = queryId;
+                    if (found == out.length) return found;
+                    out[found++] = i;
+                }
+            }
+        }
+        return found;
+    }
+
+    private int col(double x) {
+        int c = (int) Math.floor(x / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(double y) {
+        int r = (int) Math.floor(y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    private void addPair(int a, int b) {
+        if (pairCount == pairA.length) {
+            pairA = Arrays.copyOf(pairA, pairCount * 2);
+            pairB = Arrays.copyOf(pairB, pairCount * 2);
+        }
+        pairA[pairCount] = a;
+        pairB[pairCount] = b;
+        pairCount++;
+    }
+
+    private void ensureBodyCapacity(int count) {
+        if (minCol.length >= count) return;
+        int n = Math.max(count, minCol.length * 2);
+        minCol = new int[n]; maxCol = new int[n]; minRow = new int[n]; maxRow = new int[n];
+        minX = new double[n]; minY = new double[n]; maxX = new double[n]; maxY = new double[n];
+    }
+
+    public int getPairCount() { return pairCount; }
+    public int getPairA(int k) { return pairA[k]; }
+    public int getPairB(int k) { return pairB[k]; }
+
+    /** Pairs an all-pairs loop over the same bodies would have tested. */
+    public long getNaivePairCount() { return (long) bodyCount * (bodyCount - 1) / 2; }
+
+    private static double maxRadius() {
+        double max = 0;
+        for (BallType type : BallType.values()) max = Math.max(max, type.radius);
+        return max;
+    }
+}
@@ -0,0 +1,148 @@
+package physics;
+
+import java.util.Random;
+import shapes.BallType;
+
+/**
+ * A stress test for the engine: a container far larger than the game's, filled
+ * with a chosen number of balls of mixed types, optionally topped up at a fixed
+ * drop rate, with merging and the game-over rule optional so the ball count only
+ * climbs. The game shows one live from the start screen or with
+ * {@code -Dsuika.stress=<balls>}; {@link #main} ramps the count headlessly and
+ * reports the largest that still steps in real time.
+ * <p>
+ * Not thread-safe; drive it from the thread that steps its world.
+ * <p>
+ * Usage: {@code java physics.StressScene [maxBalls] [physicsHz]}
+ */
+public final class StressScene {
+
+    /** Five sizes, as in the physics benchmark; the larger types would need a far bigger container. */
+    public static final int MIXED_TYPES = 5;
+    public static final int DEFAULT_BALLS = 2000;
+
+    private static final double CELL = 2 * BallType.values()[MIXED_TYPES - 1].radius + 4;
+    // Room above the starting grid for this many seconds of drops
+    private static final double DROP_HEADROOM_SECONDS = 120;
+    private static final BallType[] TYPES = BallType.values();
+
+    private final int balls;
+    private final double dropsPerSecond;
+    private final boolean merging;
+    private final int columns;
+    private final double width, height;
+
+    private final Random random = new Random(42L);
+    private double dropsDue;
+    private long dropped;
+
+    /**
+     * @param balls          Balls in the container at the start.
+     * @param dropsPerSecond Balls dropped at the top each simulated second afterwards; 0 for none.
+     * @param merging        Whether touching balls of the same type still merge.
+     */
+    public StressScene(int balls, double dropsPerSecond, boolean merging) {
+        if (balls < 0 || dropsPerSecond < 0) throw new IllegalArgumentException("balls and drop rate must not be negative");
+        this.balls = balls;
+        this.dropsPerSecond = dropsPerSecond;
+        this.merging = merging;
+        // A square grid with room for the drops as well, filled from the bottom,
+        // with odd rows offset so the pile interlocks as it falls
+        long capacity = balls + (long) Math.ceil(dropsPerSecond * DROP_HEADROOM_SECONDS);
+        columns = (int) Math.max(8, Math.ceil(Math.sqrt(capacity)));
+        long rows = (capacity + columns - 1) / columns;
+        width = columns * CELL + CELL / 2;
+        height = SuikaWorld.GAME_OVER_LINE_Y + (rows + 1) * CELL;
+    }
+
+    /**
+     * The scene given by {@code -Dsuika.stress=<balls>}, {@code -Dsuika.stress.dropRate=<per second>}
+     * and {@code -Dsuika.stress.merging=true}, or null if no stress test was asked for.
+     */
+    public static StressScene fromSystemProperties() {
+        String balls = System.getProperty("suika.stress");
+        if (balls == null) return null;
+        try {
+            return new StressScene(balls.isEmpty() ? DEFAULT_BALLS : Integer.parseInt(balls),
+                    Double.parseDouble(System.getProperty("suika.stress.dropRate", "0")),
+                    Boolean.getBoolean("suika.stress.merging"));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring invalid stress test settings: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** A new world of this scene's size holding its starting balls, with the game-over rule off. */
+    public SuikaWorld createWorld() {
+        SuikaWorld world = new SuikaWorld(width, height, 42L);
+        world.setMergingEnabled(merging);
+        world.setGameOverEnabled(false);
+        Random jitter = new Random(42L);
+        for (int k = 0; k < balls; k++) {
+            int row = k / columns, column = k % columns;
+            // Arranged so no two neighbours start out touching their own kind
+            BallType type = TYPES[(column + 2 * row) % MIXED_TYPES];
+            double x = (column + 0.5 + (row % 2) * 0.5) * CELL + jitter.nextDouble() * 4 - 2;
+            double y = height - (row + 0.5) * CELL;
+            world.bodies().add(type, x, y);
+        }
+        return world;
+    }
+
+    /** Drops whatever balls fall due over the next {@code dt} seconds; call before each step. */
+    public void update(SuikaWorld world, double dt) {
+        dropsDue += dropsPerSecond * dt;
+        while (dropsDue >= 1) {
+            dropsDue--;
+            world.drop(TYPES[random.nextInt(MIXED_TYPES)], random.nextDouble() * width);
+            dropped++;
+        }
+    }
+
+    public int getBalls() { return balls; }
+    public double getDropsPerSecond() { return dropsPerSecond; }
+    public boolean isMerging() { return merging; }
+    public double getWidth() { return width; }
+    public double getHeight() { return height; }
+    /** Balls dropped so far on top of the starting ones. */
+    public long getDropped() { return dropped; }
+
+    /**
+     * Doubles the ball count from 250 up to {@code maxBalls}, printing the step rate
+     * each count reaches once its pile has settled, and finally the largest count
+     * that still kept up with the game's tick rate.
+     */
+    public static void main(String[] args) {
+        int maxBalls = args.length > 0 ? Integer.parseInt(args[0]) : 16_000;
+        int physicsHz = args.length > 1 ? Integer.parseInt(args[1]) : 120;
+        double dt = 1.0 / physicsHz;
+        int realTimeLimit = 0, fellBehind = 0;
+        // Untimed, so the smallest count is not measured on cold code
+        SuikaWorld warmUp = new StressScene(500, 0, false).createWorld();
+        for (int i = 0; i < 5 * physicsHz; i++) warmUp.step(dt);
+        System.out.printf("%8s %10s %12s %10s %10s%n", "balls", "steps/s", "ms/step", "pairs", "heap MB");
+        for (int balls = 250; balls <= maxBalls; balls *= 2) {
+            SuikaWorld world = new StressScene(balls, 0, false).createWorld();
+            // Falling and settling first, so the rate is that of a full container
+            for (int i = 0; i < 2 * physicsHz; i++) world.step(dt);
+            int steps = 0;
+            long start = System.nanoTime(), elapsed;
+            do {
+                world.step(dt);
+                steps++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < 2_000_000_000L && steps < 10 * physicsHz);
+            double stepsPerSecond = steps / (elapsed / 1e9);
+            Runtime runtime = Runtime.getRuntime();
+            System.out.printf("%8d %10.0f %12.3f %10d %10d%n", world.bodyCount(), stepsPerSecond, 1000 / stepsPerSecond,
+                    world.getLastCandidatePairs(), (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+            if (stepsPerSecond < physicsHz) {
+                fellBehind = world.bodyCount();
+                break;
+            }
+            realTimeLimit = world.bodyCount();
+        }
+        System.out.printf("Keeps up with %d Hz at %d balls%s%n", physicsHz, realTimeLimit,
+                fellBehind > 0 ? ", falls behind at " + fellBehind : "");
+    }
+}
@@ -0,0 +1,512 @@
+package physics;
+
+import shapes.BallType;
+
+/**
+ * The whole Suika game without any user interface: the container, its balls,
+ * merging, scoring, the next-ball generator and the game-over rule.
+ * Nothing here touches AWT or Swing, so a world can be stepped on a server or
+ * in a benchmark as fast as the CPU allows. Not thread-safe; drive it from one thread.
+ * There is no wall-clock input anywhere, which is what makes {@link Replay}s possible.
+ */
+public final class SuikaWorld {
+
+    /** Receives merge batches and the end of the game as they happen inside {@link #step(double)}. */
+    public interface Listener {
+        void onMerge(MergeQueue.MergeEvent event);
+        default void onGameOver() {}
+    }
+
+    /** Balls whose top rests above this line for {@link #GAME_OVER_SECONDS} end the game. */
+    public static final int GAME_OVER_LINE_Y = 50;
+    public static final double GAME_OVER_SECONDS = 2.0;
+    /** Only the smallest few types are ever handed out as the next ball. */
+    public static final int DROPPABLE_TYPES = 3;
+
+    // Bodies closer than this count as touching and get a contact
+    static final double CONTACT_SLOP = 1.0;
+    // A sleeper further than this from an awake body under it, and drifting apart, is woken
+    private static final double SUPPORT_GAP = 0.25;
+    private static final int SOLVER_ITERATIONS = 3;
+    private static final int POSITION_ITERATIONS = 2;
+    // Bodies that move further than this in one step are swept for impacts: half the smallest radius
+    private static final double SWEEP_DISTANCE = 0.5 * BallType.LEVEL_0.radius;
+    private static final int MAX_SWEEP_SUBSTEPS = 3;
+    private static final int PARALLEL_MIN_BODIES = 256;
+    private static final BallType[] TYPES = BallType.values();
+
+    private final BodyStore bodies = new BodyStore();
+    // Broad phase shared by collision resolution and merge detection
+    private final SpatialHash broadPhase = new SpatialHash();
+    private final ContactIslands islands = new ContactIslands();
+    private final ContactSolver solver = new ContactSolver();
+    // Same-type contacts from the collision pass, merged with their cascades in the same step
+    private final MergeQueue mergeQueue = new MergeQueue();
+    // Optional multi-core stepping; produces exactly the same result as the serial path
+    private final IslandScheduler scheduler = new IslandScheduler();
+    private boolean[] pairTouching = new boolean[64];
+    // Bodies with the floor or another ball under them this step; only these may fall asleep
+    private boolean[] supported = new boolean[64];
+    private int[] sweepCandidates = new int[64];
+    // Parallel tasks, made once so stepping allocates nothing; they read the step length from stepDt
+    private double stepDt;
+    private final IslandScheduler.IndexTask integrateTask = i -> {
+        if (!bodies.isAsleep(i)) bodies.integrate(i, stepDt, this.height, 0, this.width);
+    };
+    private final IslandScheduler.IndexTask prepareTask = k -> preparePair(k, stepDt);
+    private final IslandScheduler.IndexTask warmStartTask = solver::warmStart;
+    private final IslandScheduler.IndexTask velocityTask = solver::solveVelocity;
+    private final IslandScheduler.IndexTask positionTask = solver::solvePosition;
+
+    private final long seed;
+    private final GameRandom random;
+    private Listener listener;
+
+    private double width, height;
+    // Game state beyond the bodies; package-private so WorldSnapshot can save and restore it
+    BallType nextBall;
+    int score;
+    long tick;
+    double aboveLineSeconds;
+    private boolean gameOver;
+    private long bodyChanges;
+    private volatile boolean parallelStepping = Boolean.getBoolean("suika.parallel");
+    private int solverIterations = Math.max(1, Integer.getInteger("suika.solverIterations", SOLVER_ITERATIONS));
+    private boolean continuousCollision = true;
+    // Off only for benchmarks and stress tests that need a pile to keep its size
+    private boolean mergingEnabled = true;
+    private boolean gameOverEnabled = true;
+
+    private int lastCandidatePairs;
+    private long lastCollisionNanos, lastMergeNanos;
+    private int lastClockReads;
+    private int lastContacts;
+    private int lastSweptBodies, lastImpacts;
+    private long lastNaivePairs;
+
+    public SuikaWorld(double width, double height, long seed) {
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.random = new GameRandom(seed);
+        this.nextBall = rollNextBall();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Resizes the container; balls outside the new walls are pushed back in on the next step. */
+    public void setContainerSize(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Drops the current next ball with its center at {@code x}, clamped so it fits
+     * between the walls, and rolls a new next ball.
+     * @return The type that was dropped, or null once the game is over.
+     */
+    public BallType drop(double x) {
+        if (gameOver) return null;
+        BallType type = nextBall;
+        drop(type, x);
+        nextBall = rollNextBall();
+        return type;
+    }
+
+    /** Drops a ball of the given type at {@code x} without touching the next-ball sequence. */
+    public void drop(BallType type, double x) {
+        if (gameOver) return;
+        double r = type.radius;
+        double dropX = Math.max(r, Math.min(x, width - r));
+        bodies.add(type, dropX, r);
+        bodyChanges++;
+    }
+
+    /**
+     * Advances the simulation by {@code dt} seconds. For a given seed, container
+     * and sequence of drops at given ticks, the outcome is identical on every run.
+     */
+    public void step(double dt) {
+        if (gameOver) return;
+        bodies.savePreviousState();
+        integrate(dt);
+        // A sweep that found no impacts leaves the broad phase it built up to date
+        boolean broadPhaseCurrent = continuousCollision && sweepFastBodies(dt) && lastImpacts == 0;
+        // Merges are timed only in steps that have any, keeping clock reads to a minimum
+        long solveStart = System.nanoTime();
+        long mergeNanos = 0;
+        int clockReads = 2;
+        if (!broadPhaseCurrent) buildBroadPhase();
+        resolveCollisions(dt);
+        bodies.updateSleep(islands, supported, dt);
+        if (mergeQueue.hasOffers()) {
+            long mergeStart = System.nanoTime();
+            processMerges();
+            mergeNanos = System.nanoTime() - mergeStart;
+            clockReads += 2;
+        }
+        lastCollisionNanos = System.nanoTime() - solveStart - mergeNanos;
+        lastMergeNanos = mergeNanos;
+        lastClockReads = clockReads;
+        tick++;
+
+        // Everything merged this step, however long the chain, is reported as one event
+        MergeQueue.MergeEvent event = mergeQueue.takeEvent();
+        if (event != null) {
+            score += event.points;
+            bodyChanges++;
+            if (listener != null) listener.onMerge(event);
+        }
+        checkGameOver(dt);
+    }
+
+    // The phases of a step are package-private so benchmarks can time them one at a time
+    void integrate(double dt) {
+        int n = bodies.size();
+        bodies.prepareStep(dt);
+        if (useParallel(n)) {
+            stepDt = dt;
+            scheduler.forEachBody(n, integrateTask);
+        } else {
+            for (int i = 0; i < n; i++) {
+                if (!bodies.isAsleep(i)) bodies.integrate(i, dt, height, 0, width);
+            }
+        }
+    }
+
+    private boolean useParallel(int bodyCount) {
+        return parallelStepping && bodyCount >= PARALLEL_MIN_BODIES;
+    }
+
+    /**
+     * Continuous collision detection. A body that moved far enough this step to
+     * pass clean through a small ball is swept from where it started: it stops at
+     * its first time of impact with another body, the impact takes out the closing
+     * speed as the solver would, and it spends the rest of the step moving on with
+     * its new velocity, swept again, for up to {@link #MAX_SWEEP_SUBSTEPS} impacts.
+     * The container needs no sweep, since integration already stops a body at any
+     * wall it would have crossed. Runs serially, so parallel stepping is unaffected.
+     * @return True if any body was swept, in which case the broad phase was rebuilt.
+     */
+    boolean sweepFastBodies(double dt) {
+        int n = bodies.size();
+        int swept = 0, impacts = 0;
+        for (int i = 0; i < n; i++) {
+            if (bodies.isAsleep(i)) continue;
+            // Judged by velocity: the move since the last step also holds any push back inside a wall
+            double mx = bodies.vx[i] * dt, my = bodies.vy[i] * dt;
+            if (mx * mx + my * my <= SWEEP_DISTANCE * SWEEP_DISTANCE) continue;
+            // Built only in steps that have a fast body; the solver rebuilds it anyway
+            if (swept++ == 0) buildBroadPhase();
+            impacts += sweep(i, dt);
+        }
+        lastSweptBodies = swept;
+        lastImpacts = impacts;
+        return swept > 0;
+    }
+
+    /**
+     * Sweeps body {@code i} over the step. Times are fractions of the step: the body
+     * travels in a straight line from {@code (sx, sy)} at time {@code s0} to where
+     * integration put it at time 1, while every other body is taken to move in a
+     * straight line from its previous position to its current one.
+     * @return The number of impacts found.
+     */
+    private int sweep(int i, double dt) {
+        double r = bodies.radius[i];
+        double sx = bodies.prevX[i], sy = bodies.prevY[i], s0 = 0;
+        for (int impact = 0; impact < MAX_SWEEP_SUBSTEPS; impact++) {
+            if (s0 >= 1) return impact;
+            double ex = bodies.x[i], ey = bodies.y[i];
+            double vx = (ex - sx) / (1 - s0), vy = (ey - sy) / (1 - s0);
+            int found = queryPath(i, sx, sy, ex, ey);
+            int hit = -1;
+            double hitTime = 2;
+            for (int c = 0; c < found; c++) {
+                int j = sweepCandidates[c];
+                if (j == i) continue;
+                double jx = bodies.prevX[j], jy = bodies.prevY[j];
+                double jvx = bodies.x[j] - jx, jvy = bodies.y[j] - jy;
+                // Separation at time u is (ax + u * bx, ay + u * by)
+                double ax = sx - s0 * vx - jx, ay = sy - s0 * vy - jy;
+                double bx = vx - jvx, by = vy - jvy;
+                double reach = r + bodies.radius[j];
+                double u = firstContact(ax, ay, bx, by, reach, s0);
+                if (u < hitTime) {
+                    hitTime = u;
+                    hit = j;
+                }
+            }
+            if (hit < 0) return impact;
+
+            // Stop at the impact and cancel the closing speed, split by mass
+            double hx = sx + (hitTime - s0) * vx, hy = sy + (hitTime - s0) * vy;
+            double jx = bodies.prevX[hit] + hitTime * (bodies.x[hit] - bodies.prevX[hit]);
+            double jy = bodies.prevY[hit] + hitTime * (bodies.y[hit] - bodies.prevY[hit]);
+            double distance = Math.sqrt((hx - jx) * (hx - jx) + (hy - jy) * (hy - jy));
+            if (distance > 0) {
+                double cos = (hx - jx) / distance, sin = (hy - jy) / distance;
+                double closing = (bodies.vx[i] - bodies.vx[hit]) * cos + (bodies.vy[i] - bodies.vy[hit]) * sin;
+                if (closing < 0) {
+                    double ma = bodies.mass[i], mb = bodies.mass[hit];
+                    double wa = mb / (ma + mb), wb = ma / (ma + mb);
+                    bodies.vx[i] -= closing * wa * cos;
+                    bodies.vy[i] -= closing * wa * sin;
+                    bodies.vx[hit] += closing * wb * cos;
+                    bodies.vy[hit] += closing * wb * sin;
+                }
+            }
+            if (bodies.isAsleep(hit)) bodies.wakeGroupOf(hit);
+
+            // The rest of the step, at the new velocity
+            double rest = (1 - hitTime) * dt;
+            bodies.x[i] = hx + bodies.vx[i] * rest;
+            bodies.y[i] = hy + bodies.vy[i] * rest;
+            bodies.constrainToContainer(i, height, 0, width);
+            sx = hx;
+            sy = hy;
+            s0 = hitTime;
+            if (impact == MAX_SWEEP_SUBSTEPS - 1) {
+                // Out of substeps: stay at the last impact rather than risk passing through
+                bodies.x[i] = hx;
+                bodies.y[i] = hy;
+            }
+        }
+        return MAX_SWEEP_SUBSTEPS;
+    }
+
+    /**
+     * The first time in {@code [s0, 1]} at which a separation of {@code (ax + u * bx, ay + u * by)}
+     * closes to {@code reach}, or 2 if it never does or the two already overlap at {@code s0}.
+     */
+    private static double firstContact(double ax, double ay, double bx, double by, double reach, double s0) {
+        double px = ax + s0 * bx, py = ay + s0 * by;
+        double c0 = px * px + py * py - reach * reach;
+        // Already touching: the solver handles it
+        if (c0 <= 0) return 2;
+        double a = bx * bx + by * by;
+        double b = 2 * (ax * bx + ay * by);
+        double c = ax * ax + ay * ay - reach * reach;
+        double discriminant = b * b - 4 * a * c;
+        if (a == 0 || discriminant < 0) return 2;
+        double u = (-b - Math.sqrt(discriminant)) / (2 * a);
+        return u >= s0 && u <= 1 ? u : 2;
+    }
+
+    // Bodies whose broad-phase cells overlap the box swept by body i
+    private int queryPath(int i, double sx, double sy, double ex, double ey) {
+        double cx = (sx + ex) / 2, cy = (sy + ey) / 2;
+        double reach = Math.max(Math.abs(ex - sx), Math.abs(ey - sy)) / 2 + bodies.radius[i];
+        int found;
+        while ((found = broadPhase.query(cx, cy, reach, sweepCandidates)) == sweepCandidates.length) {
+            sweepCandidates = new int[sweepCandidates.length * 2];
+        }
+        return found;
+    }
+
+    void buildBroadPhase() {
+        broadPhase.build(bodies, width, height);
+        lastCandidatePairs = broadPhase.getPairCount();
+        lastNaivePairs = broadPhase.getNaivePairCount();
+    }
+
+    /**
+     * Finds the contacts among the broad phase's pairs and solves them: a few
+     * velocity iterations of the {@link ContactSolver}, then a few position
+     * iterations, each over the same pairs, so the broad phase is built once a step.
+     */
+    void resolveCollisions(double dt) {
+        int n = bodies.size();
+        int pairs = broadPhase.getPairCount();
+        islands.reset(n);
+        if (supported.length < n) supported = new boolean[Math.max(n, supported.length * 2)];
+        for (int i = 0; i < n; i++) {
+            if (!bodies.isAsleep(i)) bodies.constrainToContainer(i, height, 0, width);
+        }
+        mergeQueue.beginPass(pairs);
+        if (pairTouching.length < pairs) pairTouching = new boolean[Math.max(pairs, pairTouching.length * 2)];
+        solver.begin(bodies, pairs);
+
+        if (useParallel(n)) {
+            stepDt = dt;
+            scheduler.forEachPairByIsland(broadPhase, n, prepareTask);
+            solver.prepareContainer(height, 0, width, CONTACT_SLOP, dt);
+            scheduler.forEachPairOfLastIslands(warmStartTask);
+            solver.warmStartContainer();
+            for (int it = 0; it < solverIterations; it++) {
+                scheduler.forEachPairOfLastIslands(velocityTask);
+                solver.solveContainerVelocity();
+            }
+            for (int it = 0; it < POSITION_ITERATIONS; it++) {
+                constrainAwakeBodies(n);
+                scheduler.forEachPairOfLastIslands(positionTask);
+            }
+        } else {
+            for (int k = 0; k < pairs; k++) preparePair(k, dt);
+            solver.prepareContainer(height, 0, width, CONTACT_SLOP, dt);
+            // Only the pairs that touch from here on
+            int touching = solver.collectTouchingPairs();
+            for (int c = 0; c < touching; c++) solver.warmStart(solver.getTouchingPair(c));
+            solver.warmStartContainer();
+            for (int it = 0; it < solverIterations; it++) {
+                for (int c = 0; c < touching; c++) solver.solveVelocity(solver.getTouchingPair(c));
+                solver.solveContainerVelocity();
+            }
+            for (int it = 0; it < POSITION_ITERATIONS; it++) {
+                constrainAwakeBodies(n);
+                for (int c = 0; c < touching; c++) solver.solvePosition(solver.getTouchingPair(c));
+            }
+        }
+        solver.finish();
+
+        // The floor holds up what rests on it; the contacts below mark what rests on a ball
+        for (int i = 0; i < n; i++) {
+            supported[i] = bodies.y[i] + bodies.radius[i] >= height - CONTACT_SLOP;
+        }
+        // Waking touches whole sleep groups, which may span islands, so it runs after the solve
+        int contacts = 0;
+        for (int k = 0; k < pairs; k++) {
+            if (!pairTouching[k]) continue;
+            contacts++;
+            int a = broadPhase.getPairA(k), b = broadPhase.getPairB(k);
+            if (isMovingContact(a, b)) {
+                islands.union(a, b);
+                // Something moving against a sleeper, pressing in or pushing past it
+                if (bodies.isAsleep(a)) bodies.wakeGroupOf(a);
+                if (bodies.isAsleep(b)) bodies.wakeGroupOf(b);
+            }
+            if (bodies.y[a] == bodies.y[b]) continue;
+            int upper = bodies.y[a] < bodies.y[b] ? a : b, lower = upper == a ? b : a;
+            supported[upper] = true;
+            // However slowly a support creeps away, the gap it leaves grows until it wakes what it held
+            if (bodies.isAsleep(upper) && !bodies.isAsleep(lower) && isOpening(upper, lower)) bodies.wakeGroupOf(upper);
+        }
+        lastContacts = contacts;
+    }
+
+    /**
+     * Whether bodies {@code a} and {@code b} are moving against each other faster than
+     * a body can while counting as at rest. Only such contacts join bodies into a
+     * sleep island, so a settled region can sleep while a ball elsewhere in the same
+     * pile still creeps. Judged by the solved velocities rather than how far the two
+     * moved, which also holds the overlap pushed out of a ball that has just woken.
+     */
+    private boolean isMovingContact(int a, int b) {
+        double rvx = bodies.vx[a] - bodies.vx[b], rvy = bodies.vy[a] - bodies.vy[b];
+        return rvx * rvx + rvy * rvy >= BodyStore.SLEEP_LINEAR_SPEED * BodyStore.SLEEP_LINEAR_SPEED;
+    }
+
+    // Whether a and b are further apart than SUPPORT_GAP and moved apart this step
+    private boolean isOpening(int a, int b) {
+        double dx = bodies.x[a] - bodies.x[b], dy = bodies.y[a] - bodies.y[b];
+        double reach = bodies.radius[a] + bodies.radius[b] + SUPPORT_GAP;
+        if (dx * dx + dy * dy <= reach * reach) return false;
+        double px = bodies.prevX[a] - bodies.prevX[b], py = bodies.prevY[a] - bodies.prevY[b];
+        return dx * dx + dy * dy > px * px + py * py;
+    }
+
+    private void constrainAwakeBodies(int n) {
+        for (int i = 0; i < n; i++) {
+            if (!bodies.isAsleep(i)) bodies.constrainToContainer(i, height, 0, width);
+        }
+    }
+
+    void processMerges() {
+        if (mergingEnabled) mergeQueue.process(bodies, broadPhase);
+    }
+
+    /**
+     * Finds whether broad-phase pair {@code k} touches and, if so, sets up its contact.
+     * Only ever writes state of the pair's two bodies.
+     */
+    private void preparePair(int k, double dt) {
+        int a = broadPhase.getPairA(k), b = broadPhase.getPairB(k);
+
+        double dx = bodies.getX(a) - bodies.getX(b), dy = bodies.getY(a) - bodies.getY(b);
+        // sqrt is exactly rounded on every JVM, unlike hypot, which keeps replays reproducible
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        double minDist = bodies.getRadius(a) + bodies.getRadius(b);
+        boolean touching = distance < minDist + CONTACT_SLOP;
+        // Each pair is prepared by exactly one thread, so the flags need no locking
+        pairTouching[k] = touching;
+        if (MergeQueue.canMerge(bodies, a, b)) mergeQueue.offer(k);
+        if (!touching || distance == 0) return;
+        solver.prepare(k, a, b, dx, dy, distance, dt);
+    }
+
+    /** Ends the game once any settled ball has stayed above the line for long enough. */
+    private void checkGameOver(double dt) {
+        if (!gameOverEnabled) return;
+        boolean isAnyBallAboveLine = false;
+        for (int i = 0, n = bodies.size(); i < n && !isAnyBallAboveLine; i++) {
+            isAnyBallAboveLine = bodies.getY(i) - bodies.getRadius(i) < GAME_OVER_LINE_Y &&
+                Math.abs(bodies.getVy(i)) < 0.5 &&
+                Math.abs(bodies.getVx(i)) < 0.5;
+        }
+        aboveLineSeconds = isAnyBallAboveLine ? aboveLineSeconds + dt : 0;
+        if (aboveLineSeconds > GAME_OVER_SECONDS) {
+            gameOver = true;
+            if (listener != null) listener.onGameOver();
+        }
+    }
+
+    GameRandom random() { return random; }
+
+    private BallType rollNextBall() {
+        return TYPES[random.nextInt(DROPPABLE_TYPES)];
+    }
+
+    /** Switches between single-threaded and island-parallel stepping; both give identical results. */
+    public void setParallelStepping(boolean parallel) { this.parallelStepping = parallel; }
+    public boolean isParallelStepping() { return parallelStepping; }
+
+    /**
+     * Sets how many velocity iterations the contact solver makes each step, 3 by default
+     * or {@code -Dsuika.solverIterations}. Replays record it, since it changes the outcome.
+     */
+    public void setSolverIterations(int iterations) { this.solverIterations = Math.max(1, iterations); }
+    public int getSolverIterations() { return solverIterations; }
+    /** Switches sweeping of fast bodies off, to compare against discrete collision alone. */
+    public void setContinuousCollision(boolean enabled) { this.continuousCollision = enabled; }
+    public boolean isContinuousCollision() { return continuousCollision; }
+
+    /** With merging off the ball count only grows; for benchmarks and stress tests. */
+    public void setMergingEnabled(boolean enabled) { this.mergingEnabled = enabled; }
+    public boolean isMergingEnabled() { return mergingEnabled; }
+    /** With the game-over rule off an overfull container just keeps going; for stress tests. */
+    public void setGameOverEnabled(boolean enabled) { this.gameOverEnabled = enabled; }
+
+    /** Read access to every live body; indices are only stable until the next step or drop. */
+    public BodyStore bodies() { return bodies; }
+    public int bodyCount() { return bodies.size(); }
+    public BallType getNextBall() { return nextBall; }
+    public int score() { return score; }
+    public boolean isGameOver() { return gameOver; }
+    public long getSeed() { return seed; }
+    /** Number of steps taken so far; a drop made now lands before step {@code getTick()}. */
+    public long getTick() { return tick; }
+    /** Counts drops and merged steps; it changes whenever bodies were added or removed. */
+    public long getBodyChangeCount() { return bodyChanges; }
+    public double getWidth() { return width; }
+    public double getHeight() { return height; }
+
+    public int getAwakeBodyCount() { return bodies.getAwakeCount(); }
+    public int getSleepingBodyCount() { return bodies.getSleepingCount(); }
+    /** Candidate pairs the broad phase handed to the narrow phase in the last step. */
+    public int getLastCandidatePairs() { return lastCandidatePairs; }
+    /** Pairs an all-pairs loop would have tested for the same ball count. */
+    public long getLastNaivePairs() { return lastNaivePairs; }
+    /** Pairs of balls touching or within contact slop in the last step. */
+    public int getLastContacts() { return lastContacts; }
+    /** Bodies the last step swept for impacts because they moved fast, and the impacts found. */
+    public int getLastSweptBodies() { return lastSweptBodies; }
+    public int getLastImpacts() { return lastImpacts; }
+    /** Time the last step spent in broad phase and the contact solver. */
+    public long getLastCollisionNanos() { return lastCollisionNanos; }
+    /** Time the last step spent merging touching same-type balls. */
+    public long getLastMergeNanos() { return lastMergeNanos; }
+    /** How many times the last step read the clock to time its phases. */
+    public int getLastClockReads() { return lastClockReads; }
+}
@@ -0,0 +1,94 @@
+package physics;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import shapes.BallType;
+
+/**
+ * Binary snapshot of a {@link SuikaWorld}: container, seed and generator state,
+ * tick, score, game-over timer, next ball, and every body's pose, velocity and
+ * type. Restoring a snapshot continues the game where it left off; only sleep
+ * state and the contact impulses kept for warm starting are dropped, and restored
+ * piles simply settle again.
+ * <p>
+ * Layout (big-endian): version byte, width, height (double), seed, rngState,
+ * tick (long), score (int), aboveLineSeconds (double), nextBall (byte),
+ * bodyCount (int), then per body x, y, vx, vy, angle, angularVelocity (double)
+ * and type (byte).
+ */
+public final class WorldSnapshot {
+
+    public static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 1 + 8 + 8 + 8 + 8 + 8 + 4 + 8 + 1 + 4;
+    private static final int BODY_BYTES = 6 * 8 + 1;
+    private static final BallType[] TYPES = BallType.values();
+
+    private WorldSnapshot() {}
+
+    /** Exact number of bytes {@link #write} will put for {@code world}. */
+    public static int byteSize(SuikaWorld world) {
+        return HEADER_BYTES + world.bodyCount() * BODY_BYTES;
+    }
+
+    public static void write(SuikaWorld world, ByteBuffer out) {
+        BodyStore bodies = world.bodies();
+        out.put((byte) VERSION);
+        out.putDouble(world.getWidth());
+        out.putDouble(world.getHeight());
+        out.putLong(world.getSeed());
+        out.putLong(world.random().getState());
+        out.putLong(world.tick);
+        out.putInt(world.score);
+        out.putDouble(world.aboveLineSeconds);
+        out.put((byte) world.nextBall.ordinal());
+        int n = bodies.size();
+        out.putInt(n);
+        for (int i = 0; i < n; i++) {
+            out.putDouble(bodies.x[i]);
+            out.putDouble(bodies.y[i]);
+            out.putDouble(bodies.vx[i]);
+            out.putDouble(bodies.vy[i]);
+            out.putDouble(bodies.angle[i]);
+            out.putDouble(bodies.angularVelocity[i]);
+            out.put(bodies.type[i]);
+        }
+    }
+
+    public static SuikaWorld read(ByteBuffer in) throws IOException {
+        try {
+            int version = in.get();
+            if (version != VERSION) throw new IOException("Unsupported world snapshot version " + version);
+            double width = in.getDouble(), height = in.getDouble();
+            SuikaWorld world = new SuikaWorld(width, height, in.getLong());
+            world.random().setState(in.getLong());
+            world.tick = in.getLong();
+            world.score = in.getInt();
+            world.aboveLineSeconds = in.getDouble();
+            world.nextBall = type(in.get());
+            int n = in.getInt();
+            if (n < 0 || (long) n * BODY_BYTES > in.remaining()) throw new IOException("Corrupt body count " + n);
+            BodyStore bodies = world.bodies();
+            for (int k = 0; k < n; k++) {
+                double x = in.getDouble(), y = in.getDouble();
+                double vx = in.getDouble(), vy = in.getDouble();
+                double angle = in.getDouble(), angularVelocity = in.getDouble();
+                int i = bodies.add(type(in.get()), x, y);
+                bodies.vx[i] = vx;
+                bodies.vy[i] = vy;
+                bodies.angle[i] = angle;
+                bodies.prevAngle[i] = angle;
+                bodies.angularVelocity[i] = angularVelocity;
+            }
+            return world;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated world snapshot", e);
+        }
+    }
+
+    private static BallType type(byte ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= TYPES.length) throw new IOException("Corrupt ball type " + ordinal);
+        return TYPES[ordinal];
+    }
+}
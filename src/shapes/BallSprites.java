@@ -0,0 +1,222 @@
+package shapes;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import utils.ImageCache;
+
+/**
+ * Images for each {@link BallType}, kept apart from the type itself so the
+ * simulation can use ball types without loading any AWT image code.
+ * <p>
+ * Each PNG is decoded once into a mip chain of premultiplied images, halving in
+ * size down to the smallest ball. Sprites at a given pixel diameter are scaled
+ * from the nearest larger mip level into a screen-compatible image and kept in a
+ * bounded LRU cache, so painting a ball is a single blit of a ready image.
+ * <p>
+ * The paint path takes no lock when a type is drawn at one of the few sizes it
+ * was last drawn at, which is nearly always; the lock guards only the LRU map and
+ * the mip chains, and decoding and scaling run outside it.
+ */
+public final class BallSprites {
+
+    /** Diameter the next-ball panel shows a ball at, whatever its type. */
+    public static final int NEXT_BALL_DIAMETER = 80;
+
+    private static final BallType[] TYPES = BallType.values();
+    // Every ball size at 1x and 2x display scale, plus the previews, fits comfortably
+    private static final int MAX_CACHED_SPRITES = 64;
+    private static final int SMALLEST_MIP = 16;
+    // A type is drawn in play, as the drop preview and in the next-ball panel, so one remembered size would thrash
+    private static final int RECENT_SIZES = 4;
+
+    private static final BufferedImage[][] mipChains = new BufferedImage[TYPES.length][];
+    private static final boolean[] loadFailed = new boolean[TYPES.length];
+    private static final Color[] fallbackColors = new Color[TYPES.length];
+
+    // Last few sprites handed out per type: ball sizes are fixed, so these answer almost every lookup without the lock
+    private static final AtomicReferenceArray<BufferedImage> recentSprites = new AtomicReferenceArray<>(TYPES.length * RECENT_SIZES);
+    // Slot each type replaces next; racing writers at worst replace the same slot twice
+    private static final int[] nextRecentSlot = new int[TYPES.length];
+    // Guarded by the class lock, like the mip chains
+    private static final Map<Long, BufferedImage> sprites = new LinkedHashMap<>(MAX_CACHED_SPRITES * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            if (size() <= MAX_CACHED_SPRITES) return false;
+            evictions++;
+            return true;
+        }
+    };
+    private static final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    private static long evictions;
+
+    private BallSprites() {}
+
+    /**
+     * Returns the ball's sprite rendered at {@code pixelDiameter} device pixels.
+     * @return A cached premultiplied image, or null if the ball's image could not be loaded.
+     */
+    public static BufferedImage getSprite(BallType type, int pixelDiameter) {
+        int size = Math.max(1, pixelDiameter);
+        int recent = type.ordinal() * RECENT_SIZES;
+        for (int slot = recent; slot < recent + RECENT_SIZES; slot++) {
+            BufferedImage sprite = recentSprites.get(slot);
+            if (sprite != null && sprite.getWidth() == size) {
+                hits.increment();
+                return sprite;
+            }
+        }
+        Long key = key(type, size);
+        BufferedImage sprite;
+        synchronized (BallSprites.class) {
+            sprite = sprites.get(key);
+        }
+        if (sprite != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            BufferedImage[] mips = getMipChain(type);
+            if (mips == null) return null;
+            sprite = cache(key, scaleFromMips(mips, size));
+        }
+        int t = type.ordinal();
+        int slot = nextRecentSlot[t];
+        nextRecentSlot[t] = (slot + 1) % RECENT_SIZES;
+        recentSprites.set(recent + slot, sprite);
+        return sprite;
+    }
+
+    /** Returns the sprite for a ball drawn {@code diameter} logical pixels wide at a display scale. */
+    public static BufferedImage getSprite(BallType type, double diameter, double displayScale) {
+        return getSprite(type, (int) Math.round(diameter * displayScale));
+    }
+
+    /**
+     * Decodes the ball's image and renders the sprites the game draws it with, so the
+     * first time it appears costs nothing. Safe to call from any thread; the expensive
+     * work runs outside the cache lock, so several types can be prepared in parallel.
+     */
+    public static void prepare(BallType type) {
+        BufferedImage[] mips = getMipChain(type);
+        if (mips == null) return;
+        // In play and as the drop preview, both at the screen's scale, and in the next-ball panel
+        double scale = defaultDisplayScale();
+        int[] sizes = {(int) Math.round(type.radius * 2 * scale), (int) Math.round((int) type.radius * 2 * scale),
+                NEXT_BALL_DIAMETER};
+        for (int size : sizes) {
+            Long key = key(type, size);
+            synchronized (BallSprites.class) {
+                if (sprites.containsKey(key)) continue;
+            }
+            cache(key, scaleFromMips(mips, size));
+        }
+    }
+
+    public static long getHits() { return hits.sum(); }
+    public static long getMisses() { return misses.sum(); }
+    public static synchronized long getEvictions() { return evictions; }
+    public static synchronized int getCachedCount() { return sprites.size(); }
+
+    public static synchronized String getStats() {
+        long hitCount = hits.sum(), missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        return String.format("sprites: %d cached, %d hits, %d misses (%.1f%% hit), %d evicted",
+                sprites.size(), hitCount, missCount, lookups == 0 ? 0.0 : 100.0 * hitCount / lookups, evictions);
+    }
+
+    public static Color getFallbackColor(BallType type) {
+        Color color = fallbackColors[type.ordinal()];
+        if (color == null) {
+            color = new Color(type.fallbackRgb);
+            fallbackColors[type.ordinal()] = color;
+        }
+        return color;
+    }
+
+    private static Long key(BallType type, int size) {
+        return ((long) type.ordinal() << 32) | size;
+    }
+
+    // Keeps the first sprite cached for the key, so racing threads all hand out the same image
+    private static BufferedImage cache(Long key, BufferedImage sprite) {
+        synchronized (BallSprites.class) {
+            BufferedImage cached = sprites.putIfAbsent(key, sprite);
+            return cached != null ? cached : sprite;
+        }
+    }
+
+    // Lazily decodes the original image and builds its mip chain outside the lock; if two
+    // threads race on one type, both build it and the first one stored is kept.
+    private static BufferedImage[] getMipChain(BallType type) {
+        int t = type.ordinal();
+        synchronized (BallSprites.class) {
+            if (mipChains[t] != null || loadFailed[t]) return mipChains[t];
+        }
+        BufferedImage[] mips = buildMipChain(type);
+        synchronized (BallSprites.class) {
+            if (mips == null) loadFailed[t] = true;
+            else if (mipChains[t] == null) mipChains[t] = mips;
+            return mipChains[t];
+        }
+    }
+
+    private static BufferedImage[] buildMipChain(BallType type) {
+        BufferedImage original = ImageCache.getImage(type.imagePath);
+        if (original == null) return null;
+        int levels = 1;
+        for (int s = original.getWidth() / 2; s >= SMALLEST_MIP; s /= 2) levels++;
+        BufferedImage[] mips = new BufferedImage[levels];
+        mips[0] = render(original, original.getWidth());
+        for (int i = 1; i < levels; i++) mips[i] = render(mips[i - 1], mips[i - 1].getWidth() / 2);
+        return mips;
+    }
+
+    // Scales from the smallest mip level that is still at least as large as the target
+    private static BufferedImage scaleFromMips(BufferedImage[] mips, int size) {
+        BufferedImage source = mips[0];
+        for (BufferedImage mip : mips) {
+            if (mip.getWidth() < size) break;
+            source = mip;
+        }
+        return render(source, size);
+    }
+
+    private static BufferedImage render(BufferedImage source, int size) {
+        BufferedImage target = createCompatibleImage(size);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, size, size, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static double defaultDisplayScale() {
+        if (GraphicsEnvironment.isHeadless()) return 1.0;
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().getDefaultTransform().getScaleX();
+    }
+
+    private static BufferedImage createCompatibleImage(int size) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            BufferedImage image = gc.createCompatibleImage(size, size, Transparency.TRANSLUCENT);
+            if (image.isAlphaPremultiplied()) return image;
+        }
+        return new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+}
@@ -1,9 +1,9 @@
 package shapes;
 
-import java.awt.Color;
-import java.awt.Image;
-import javax.swing.ImageIcon;
-
+/**
+ * The eleven ball sizes, from smallest to largest. Pure game data with no
+ * rendering dependencies; images are looked up through {@link BallSprites}.
+ */
 public enum BallType {
     // Enum constants now define radius, score, and image path.
     LEVEL_0(16, 10, "/icons/ball_1.png"),    // 32x32 pixels
@@ -21,55 +21,16 @@ public enum BallType {
     public final double radius;
     public final int scoreValue;
     public final String imagePath;
-    
-    // Fallback color in case image loading fails
-    public final Color fallbackColor; 
 
-    // A cached copy of the original, full-size image icon
-    private ImageIcon originalImageIcon;
+    // Fallback color (0xRRGGBB) in case image loading fails
+    public final int fallbackRgb;
 
     BallType(double radius, int scoreValue, String imagePath) {
         this.radius = radius;
         this.scoreValue = scoreValue;
         this.imagePath = imagePath;
         // Generate a random fallback color for robustness
-        this.fallbackColor = new Color((int)(Math.random() * 0x1000000));
-    }
-
-    // Lazily loads the original image icon and caches it.
-    private ImageIcon getOriginalImageIcon() {
-        if (originalImageIcon == null) {
-            try {
-                originalImageIcon = new ImageIcon(getClass().getResource(imagePath));
-                // Check if the image was actually loaded
-                if (originalImageIcon.getImageLoadStatus() != java.awt.MediaTracker.COMPLETE) {
-                    System.err.println("Failed to load image: " + imagePath);
-                    originalImageIcon = null;
-                }
-            } catch (Exception e) {
-                System.err.println("Error loading image resource: " + imagePath);
-                originalImageIcon = null;
-            }
-        }
-        return originalImageIcon;
-    }
-
-    /**
-     * This is the new key method. It returns a resized version of the ball's image.
-     * @param diameter The target width and height for the new image icon.
-     * @return A resized ImageIcon, or null if the original image could not be loaded.
-     */
-    public ImageIcon getResizedImageIcon(int diameter) {
-        ImageIcon originalIcon = getOriginalImageIcon();
-        if (originalIcon == null) {
-            return null; // Return null if the base image isn't available
-        }
-        
-        // Use getScaledInstance to resize the image smoothly (shrinks without cutting)
-        Image resizedImage = originalIcon.getImage().getScaledInstance(diameter, diameter, Image.SCALE_SMOOTH);
-        
-        // Return a new ImageIcon created from the resized Image
-        return new ImageIcon(resizedImage);
+        this.fallbackRgb = (int) (Math.random() * 0x1000000);
     }
 
     // Helper method to get the next ball type in the sequence
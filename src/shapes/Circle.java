@@ -1,56 +1,54 @@
 package shapes;
 
 import java.awt.*;
-import javax.swing.ImageIcon;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 
 public class Circle extends MyShape {
-    private final BallType type;
-
-    public Circle(BallType type, double centerX, double centerY) {
-        // Constructor now takes CENTER coordinates for easier spawning
-        super(centerX - type.radius, centerY - type.radius, type.radius * 2, type.radius * 2, Color.BLACK, Color.GRAY, type.radius);
-        this.type = type;
-    }
 
     public BallType getType() {
         return type;
     }
 
-    @Override
-    public void draw(Graphics g) {
-        Graphics2D g2 = (Graphics2D) g.create(); // Create a copy of the Graphics2D context
-
-        try {
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    // Reused for every blit so drawing a ball allocates nothing
+    private final AffineTransform spriteTransform = new AffineTransform();
+    private GraphicsConfiguration lastConfig;
+    private double displayScale = 1.0;
+    private double viewScale = 1.0;
 
-            ImageIcon icon = type.getResizedImageIcon((int) Math.round(getWidth()));
-            
-            // Calculate center for rotation
-            double centerX = getX() + getWidth() / 2.0;
-            double centerY = getY() + getHeight() / 2.0;
+    /** The scale the caller has applied to the graphics, so sprites are picked at the size they appear. */
+    public void setViewScale(double viewScale) {
+        this.viewScale = viewScale;
+    }
 
-            // --- ADDED: Rotation Logic ---
-            // 1. Translate the canvas origin to the center of the circle
-            g2.translate(centerX, centerY);
-            // 2. Rotate the canvas
-            g2.rotate(getRotationAngle());
-            // 3. Translate back so the image is drawn centered on the new origin
-            g2.translate(-getWidth() / 2.0, -getHeight() / 2.0);
+    @Override
+    public void draw(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        BallType type = getType();
+        double diameter = getWidth();
 
-            if (icon != null && icon.getImage() != null) {
-                // Draw the image at (0,0) of the transformed canvas
-                g2.drawImage(icon.getImage(), 0, 0, null);
-            } else {
-                // Fallback drawing if image fails, drawn at (0,0) relative to transformed context
-                g2.setColor(type.fallbackColor);
-                g2.fillOval(0, 0, (int) Math.round(getWidth()), (int) Math.round(getHeight()));
-                g2.setColor(Color.BLACK);
-                g2.drawOval(0, 0, (int) Math.round(getWidth()), (int) Math.round(getHeight()));
-            }
+        // HiDPI screens get sprites at device resolution, drawn back down to logical size
+        GraphicsConfiguration config = g2.getDeviceConfiguration();
+        if (config != lastConfig) {
+            lastConfig = config;
+            displayScale = config != null ? config.getDefaultTransform().getScaleX() : 1.0;
+        }
+        BufferedImage sprite = BallSprites.getSprite(type, diameter, displayScale * viewScale);
 
-        } finally {
-            // Dispose of the copied context to restore the original transform
-            g2.dispose();
+        if (sprite != null) {
+            // Rotate about the ball's center, then draw the sprite centered on it in one blit
+            spriteTransform.setToTranslation(getX() + diameter / 2.0, getY() + diameter / 2.0);
+            spriteTransform.rotate(getRotationAngle());
+            spriteTransform.translate(-diameter / 2.0, -diameter / 2.0);
+            spriteTransform.scale(diameter / sprite.getWidth(), diameter / sprite.getHeight());
+            g2.drawImage(sprite, spriteTransform, null);
+        } else {
+            // Fallback drawing if image fails; a plain circle looks the same at any rotation
+            int x = (int) Math.round(getX()), y = (int) Math.round(getY()), d = (int) Math.round(diameter);
+            g2.setColor(BallSprites.getFallbackColor(type));
+            g2.fillOval(x, y, d, d);
+            g2.setColor(Color.BLACK);
+            g2.drawOval(x, y, d, d);
         }
 
         // Debugging border (drawn with original un-rotated graphics context)
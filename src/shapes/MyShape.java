@@ -1,126 +1,84 @@
 // File: shapes/MyShape.java
 package shapes;
 
-import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Rectangle;
+import physics.BodyStore;
+import physics.RenderSnapshot;
 
-public abstract class MyShape extends Rectangle {
+/**
+ * A drawing view onto one body of a {@link BodyStore} or {@link RenderSnapshot}.
+ * Views hold no physics state of their own; a single view can be re-pointed at
+ * each body in turn with {@link #bind(RenderSnapshot, int)} while painting.
+ */
+public abstract class MyShape {
 
-    private static final long serialVersionUID = 1L;
+    protected BodyStore store;
+    protected int index;
 
-    protected double x, y, width, height;
-    
-    // --- Physics Properties ---
-    private double mass;
-    private double gravity = 300.0; // Increased gravity for faster falling
-    private double bounce = 0.10;   // Lower bounce for less vertical movement
-    private double vx, v;          // Linear velocities
-    
-    // --- Rotational Physics Properties ---
-    private double rotationAngle = 0;
-    private double angularVelocity = 0;
-    private double momentOfInertia;
+    // Pose captured at bind time, so drawing never reads the live store
+    protected double centerX, centerY, radius, angle;
+    protected BallType type;
 
     private boolean selected = false;
 
-    public MyShape(double x, double y, double width, double height, Color borderColor, Color insiderColor, double mass) {
-        super();
-        this.x = x;
-        this.y = y;
-        this.width = width;
-        this.height = height;
-        this.mass = mass > 0 ? mass : 1;
-        
-        double radius = width / 2.0;
-        this.momentOfInertia = 0.5 * this.mass * (radius * radius);
-        if (this.momentOfInertia == 0) this.momentOfInertia = 1;
-
-        updateRectangleBounds();
+    public MyShape bind(BodyStore store, int index) {
+        return bind(store, index, 1.0);
     }
-    
-    protected void updateRectangleBounds() {
-        super.x = (int) Math.round(this.x);
-        super.y = (int) Math.round(this.y);
-        super.width = (int) Math.round(this.width);
-        super.height = (int) Math.round(this.height);
+
+    /**
+     * Points this view at a body, drawing it {@code alpha} of the way from its
+     * previous step's pose to its current one.
+     */
+    public MyShape bind(BodyStore store, int index, double alpha) {
+        this.store = store;
+        this.index = index;
+        centerX = store.getInterpolatedX(index, alpha);
+        centerY = store.getInterpolatedY(index, alpha);
+        angle = store.getInterpolatedAngle(index, alpha);
+        radius = store.getRadius(index);
+        type = store.getType(index);
+        return this;
     }
 
-    public MyShape(double x, double y, double width, double height) {
-        this(x, y, width, height, Color.BLACK, Color.GRAY, 1.0);
+    /** Points this view at a body of a published snapshot; physics calls are unavailable. */
+    public MyShape bind(RenderSnapshot snapshot, int index) {
+        this.store = null;
+        this.index = index;
+        centerX = snapshot.getX(index);
+        centerY = snapshot.getY(index);
+        angle = snapshot.getAngle(index);
+        radius = snapshot.getRadius(index);
+        type = snapshot.getType(index);
+        return this;
     }
 
     /**
-     * MODIFIED: Contains improved ground collision logic to prevent unwanted bouncing.
+     * Steps the bound body through gravity, integration and container clamping.
      */
     public void applyPhysics(double dt, double sceneBottomY, double sceneLeft, double sceneRight) {
-        // Update position based on velocity
-        v += gravity * dt;
-        setX(this.x + vx * dt);
-        setY(this.y + v * dt);
-
-        // Update rotation and apply angular damping (air/rolling resistance)
-        rotationAngle += angularVelocity * dt;
-        angularVelocity *= 0.98;
-
-        boolean onGround = false;
-
-        // --- Bottom boundary collision ---
-        if (getY() + getHeight() >= sceneBottomY) {
-            setY(sceneBottomY - getHeight());
-            onGround = true;
-
-            // --- Only bounce if velocity is significant and not being pushed horizontally ---
-            if (Math.abs(v) > 2.0) {
-                v = -v * bounce;
-            } else {
-                v = 0; // Stop vertical movement
-            }
-
-            // Apply friction with the floor for rolling
-            vx *= 0.94; // More friction for less sliding
-            angularVelocity *= 0.94;
-        }
-
-        // Side boundary collisions
-        if (getX() < sceneLeft) {
-            setX(sceneLeft);
-            vx = -vx * bounce;
-        } else if (getX() + getWidth() > sceneRight) {
-            setX(sceneRight - getWidth());
-            vx = -vx * bounce;
-        }
-
-        // Stop tiny movements to prevent jittering and save performance
-        if (Math.abs(v) < 0.1) v = 0;
-        if (Math.abs(vx) < 0.1) vx = 0;
-        if (Math.abs(angularVelocity) < 0.01) angularVelocity = 0;
+        store.integrate(index, dt, sceneBottomY, sceneLeft, sceneRight);
     }
 
     public void applyTorque(double torque) {
-        if (momentOfInertia > 0) {
-            this.angularVelocity += torque / this.momentOfInertia;
-        }
+        store.applyTorque(index, torque);
     }
 
     public abstract void draw(Graphics g);
     public abstract double getArea();
 
-    // Standard Getters and Setters
-    @Override public double getX() { return x; }
-    public void setX(double x) { this.x = x; updateRectangleBounds(); }
-    @Override public double getY() { return y; }
-    public void setY(double y) { this.y = y; updateRectangleBounds(); }
-    @Override public double getWidth() { return width; }
-    @Override public double getHeight() { return height; }
-    public double getV() { return v; }
-    public void setV(double v) { this.v = v; }
-    public double getVx() { return vx; }
-    public void setVx(double vx) { this.vx = vx; }
-    public double getMass() { return mass; }
-    public double getBounce() { return bounce; }
-    public double getRotationAngle() { return rotationAngle; }
+    // Getters report the interpolated top-left corner, as the Rectangle-based shapes always did
+    public double getX() { return centerX - radius; }
+    public double getY() { return centerY - radius; }
+    public double getWidth() { return radius * 2; }
+    public double getHeight() { return radius * 2; }
+    public double getV() { return store.getVy(index); }
+    public double getVx() { return store.getVx(index); }
+    public double getMass() { return store.getMass(index); }
+    public double getBounce() { return BodyStore.BOUNCE; }
+    public double getRotationAngle() { return angle; }
+    public int getIndex() { return index; }
     public boolean getSelected() { return selected; }
     public void setSelected(boolean selected) { this.selected = selected; }
-    @Override public Rectangle getBounds() { return new Rectangle((int) Math.round(x), (int) Math.round(y), (int) Math.round(width), (int) Math.round(height)); }
+    public Rectangle getBounds() { return new Rectangle((int) Math.round(getX()), (int) Math.round(getY()), (int) Math.round(getWidth()), (int) Math.round(getHeight())); }
 }
@@ -0,0 +1,254 @@
+package utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.sound.sampled.*;
+
+/**
+ * Software mixer for sound effects. Each effect is decoded to 16-bit stereo PCM
+ * once; playing it only enqueues a trigger, and a dedicated thread mixes up to
+ * {@link #MAX_VOICES} voices into a single long-lived {@link SourceDataLine}.
+ * When every voice is busy, the voice closest to finishing is stolen.
+ */
+public final class AudioMixer {
+
+    public static final float SAMPLE_RATE = 44100f;
+    public static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+    public static final int MAX_VOICES = 16;
+
+    // Frames mixed per write; the line holds a few periods so a late wake-up doesn't click
+    private static final int PERIOD_FRAMES = 256;
+    private static final int LINE_BUFFER_PERIODS = 6;
+
+    private static final AudioMixer INSTANCE = new AudioMixer();
+
+    // Copy-on-write, so the mixer thread reads decoded sounds without taking any lock
+    private volatile short[][] sounds = new short[0][];
+    private final Queue<Trigger> triggers = new ConcurrentLinkedQueue<>();
+    private final Voice[] voices = new Voice[MAX_VOICES];
+
+    private volatile boolean started;
+    private volatile boolean unavailable;
+    private volatile int activeVoices;
+    private volatile long underruns;
+    private volatile long voicesStolen;
+    private volatile long soundsPlayed;
+
+    private AudioMixer() {
+        for (int i = 0; i < MAX_VOICES; i++) voices[i] = new Voice();
+    }
+
+    public static AudioMixer get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Decodes a sound resource into the mixer's format, on the calling thread and
+     * without holding any lock the mixer thread takes.
+     * @return An id for {@link #play}, or -1 if the resource is missing or cannot be decoded.
+     */
+    public int load(String resourcePath) {
+        InputStream in = AudioMixer.class.getResourceAsStream(resourcePath);
+        if (in == null) {
+            System.err.println("Sound file not found: " + resourcePath);
+            return -1;
+        }
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(new BufferedInputStream(in));
+             AudioInputStream pcm = toMixerFormat(source)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = pcm.read(buffer)) > 0) bytes.write(buffer, 0, n);
+            byte[] data = bytes.toByteArray();
+            short[] samples = new short[data.length / 2];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (short) ((data[2 * i] & 0xFF) | (data[2 * i + 1] << 8));
+            }
+            return publish(samples);
+        } catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+            System.err.println("Failed to decode sound: " + resourcePath + " (" + e.getMessage() + ")");
+            return -1;
+        }
+    }
+
+    private synchronized int publish(short[] samples) {
+        int id = sounds.length;
+        short[][] grown = Arrays.copyOf(sounds, id + 1);
+        grown[id] = samples;
+        sounds = grown;
+        return id;
+    }
+
+    /** Wraps a decoded stream so it reads as {@link #FORMAT}, converting as needed. */
+    public static AudioInputStream toMixerFormat(AudioInputStream source) {
+        AudioFormat format = source.getFormat();
+        if (format.matches(FORMAT)) return source;
+        // Go through signed 16-bit PCM at the source rate and channel count first
+        AudioFormat pcm = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+        AudioInputStream stream = format.matches(pcm) ? source : AudioSystem.getAudioInputStream(pcm, source);
+        if (format.getChannels() == 1) stream = new MonoToStereoStream(stream);
+        return stream.getFormat().matches(FORMAT) ? stream : AudioSystem.getAudioInputStream(FORMAT, stream);
+    }
+
+    /**
+     * Queues a sound; safe and lock-free from any thread.
+     * @param gain Linear gain, 1 for the sound's own level.
+     * @param pan -1 for hard left, 0 for center, 1 for hard right.
+     */
+    public void play(int soundId, float gain, float pan) {
+        if (soundId < 0 || unavailable) return;
+        if (!started) start();
+        triggers.add(new Trigger(soundId, gain, Math.max(-1f, Math.min(1f, pan))));
+    }
+
+    private synchronized void start() {
+        if (started) return;
+        started = true;
+        Thread thread = new Thread(this::run, "audio-mixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+        // The mixer runs until the JVM exits, so that is when it reports how it did
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (!unavailable) {
+                System.out.printf("Audio mixer: %d sounds played, %d voices stolen, %d underruns%n",
+                        soundsPlayed, voicesStolen, underruns);
+            }
+        }, "audio-mixer-stats"));
+    }
+
+    private void run() {
+        SourceDataLine line;
+        try {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, PERIOD_FRAMES * LINE_BUFFER_PERIODS * FORMAT.getFrameSize());
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("Sound effects disabled: " + e.getMessage());
+            unavailable = true;
+            triggers.clear();
+            return;
+        }
+        int[] mix = new int[PERIOD_FRAMES * 2];
+        byte[] out = new byte[PERIOD_FRAMES * FORMAT.getFrameSize()];
+        boolean primed = false;
+        while (true) {
+            Trigger trigger;
+            while ((trigger = triggers.poll()) != null) startVoice(trigger);
+
+            Arrays.fill(mix, 0);
+            int active = 0;
+            for (Voice voice : voices) {
+                if (voice.samples == null) continue;
+                voice.mixInto(mix);
+                if (voice.samples != null) active++;
+            }
+            activeVoices = active;
+
+            for (int i = 0; i < mix.length; i++) {
+                int s = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+                out[2 * i] = (byte) s;
+                out[2 * i + 1] = (byte) (s >> 8);
+            }
+            // A completely drained line means the device played silence we never wrote
+            if (primed && line.available() >= line.getBufferSize()) underruns++;
+            line.write(out, 0, out.length);
+            primed = true;
+        }
+    }
+
+    private void startVoice(Trigger trigger) {
+        short[] samples = sounds[trigger.soundId];
+        Voice target = null;
+        for (Voice voice : voices) {
+            if (voice.samples == null) { target = voice; break; }
+        }
+        if (target == null) {
+            // Steal the voice with the least left to play; cutting it off is least audible
+            target = voices[0];
+            for (Voice voice : voices) {
+                if (voice.remaining() < target.remaining()) target = voice;
+            }
+            voicesStolen++;
+        }
+        // Equal-power pan keeps a centered sound as loud as a panned one
+        double angle = (trigger.pan + 1) * Math.PI / 4;
+        target.samples = samples;
+        target.position = 0;
+        target.gainLeft = (float) (trigger.gain * Math.cos(angle) * Math.sqrt(2));
+        target.gainRight = (float) (trigger.gain * Math.sin(angle) * Math.sqrt(2));
+        soundsPlayed++;
+    }
+
+    /** Voices playing as of the last mixed period. */
+    public int getActiveVoices() { return activeVoices; }
+    /** Times the output line ran dry before the mixer refilled it. */
+    public long getUnderruns() { return underruns; }
+    public long getVoicesStolen() { return voicesStolen; }
+    public long getSoundsPlayed() { return soundsPlayed; }
+
+    private static final class Trigger {
+        final int soundId;
+        final float gain;
+        final float pan;
+
+        Trigger(int soundId, float gain, float pan) {
+            this.soundId = soundId;
+            this.gain = gain;
+            this.pan = pan;
+        }
+    }
+
+    // Touched only by the mixer thread
+    private static final class Voice {
+        short[] samples; // interleaved stereo, null when idle
+        int position;
+        float gainLeft, gainRight;
+
+        int remaining() { return samples.length - position; }
+
+        void mixInto(int[] mix) {
+            int n = Math.min(mix.length, samples.length - position);
+            for (int i = 0; i < n; i += 2) {
+                mix[i] += (int) (samples[position + i] * gainLeft);
+                mix[i + 1] += (int) (samples[position + i + 1] * gainRight);
+            }
+            position += n;
+            if (position >= samples.length) samples = null;
+        }
+    }
+
+    /** Duplicates each 16-bit mono sample into a left/right pair. */
+    private static final class MonoToStereoStream extends AudioInputStream {
+        private final AudioInputStream mono;
+
+        MonoToStereoStream(AudioInputStream mono) {
+            super(mono, new AudioFormat(mono.getFormat().getSampleRate(), 16, 2, true, false), mono.getFrameLength());
+            this.mono = mono;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            byte[] in = new byte[(len / 4) * 2];
+            int n = mono.read(in, 0, in.length);
+            if (n <= 0) return n;
+            n -= n % 2;
+            for (int i = 0; i < n; i += 2) {
+                int o = off + i * 2;
+                b[o] = b[o + 2] = in[i];
+                b[o + 1] = b[o + 3] = in[i + 1];
+            }
+            return n * 2;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mono.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Prints where the time went in a recording made with {@link FlightRecording}:
+ * latency percentiles for each phase of a tick and for paints and score saves,
+ * the JVM pauses that can stall them, and the slowest ticks and paints along with
+ * any pause they overlapped.
+ * <p>
+ * Usage: {@code java utils.FlightAnalyzer recording.jfr [slowestToList]}
+ */
+public final class FlightAnalyzer {
+
+    private final Map<String, List<Long>> phases = new LinkedHashMap<>();
+    private final List<RecordedEvent> ticks = new ArrayList<>();
+    private final List<RecordedEvent> paints = new ArrayList<>();
+    // GC pauses and safepoints, which stop every Java thread
+    private final List<RecordedEvent> gcPauses = new ArrayList<>();
+    private final List<RecordedEvent> safepoints = new ArrayList<>();
+    private int merges, deepestCascade, drops, sounds;
+    private Instant first, last;
+
+    private FlightAnalyzer() {
+        for (String phase : new String[] {"tick", "  collision", "  merge", "  other", "paint", "score save", "gc pause", "safepoint"}) {
+            phases.put(phase, new ArrayList<>());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java utils.FlightAnalyzer recording.jfr [slowestToList]");
+            System.exit(2);
+        }
+        FlightAnalyzer analyzer = new FlightAnalyzer();
+        for (RecordedEvent event : RecordingFile.readAllEvents(Path.of(args[0]))) analyzer.add(event);
+        analyzer.print(args.length > 1 ? Integer.parseInt(args[1]) : 5);
+    }
+
+    private void add(RecordedEvent event) {
+        if (first == null || event.getStartTime().isBefore(first)) first = event.getStartTime();
+        if (last == null || event.getEndTime().isAfter(last)) last = event.getEndTime();
+        long nanos = event.getDuration().toNanos();
+        switch (event.getEventType().getName()) {
+            case "suika.Tick" -> {
+                long collision = event.getLong("collisionTime"), merge = event.getLong("mergeTime");
+                phases.get("tick").add(nanos);
+                phases.get("  collision").add(collision);
+                phases.get("  merge").add(merge);
+                phases.get("  other").add(Math.max(0, nanos - collision - merge));
+                ticks.add(event);
+            }
+            case "suika.Paint" -> {
+                phases.get("paint").add(nanos);
+                paints.add(event);
+            }
+            case "suika.ScoreSave" -> phases.get("score save").add(nanos);
+            case "suika.Merge" -> {
+                merges++;
+                deepestCascade = Math.max(deepestCascade, event.getInt("cascadeDepth"));
+            }
+            case "suika.Drop" -> drops++;
+            case "suika.Sound" -> sounds++;
+            case "jdk.GCPhasePause" -> {
+                phases.get("gc pause").add(nanos);
+                gcPauses.add(event);
+            }
+            case "jdk.SafepointBegin" -> {
+                phases.get("safepoint").add(nanos);
+                safepoints.add(event);
+            }
+            default -> { }
+        }
+    }
+
+    private void print(int slowest) {
+        if (first == null) {
+            System.out.println("The recording holds no events");
+            return;
+        }
+        System.out.printf("%.1f s recorded: %d ticks, %d paints, %d drops, %d merges (deepest cascade %d), %d sounds%n%n",
+                Duration.between(first, last).toMillis() / 1000.0, ticks.size(), paints.size(), drops, merges, deepestCascade, sounds);
+        System.out.printf("%-12s %8s %9s %9s %9s %9s %11s%n", "phase", "count", "p50 ms", "p95 ms", "p99 ms", "max ms", "total ms");
+        for (Map.Entry<String, List<Long>> phase : phases.entrySet()) {
+            long[] values = phase.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+            if (values.length == 0) continue;
+            long total = 0;
+            for (long value : values) total += value;
+            System.out.printf("%-12s %8d %9.3f %9.3f %9.3f %9.3f %11.1f%n", phase.getKey(), values.length,
+                    percentile(values, 0.50) / 1e6, percentile(values, 0.95) / 1e6, percentile(values, 0.99) / 1e6,
+                    values[values.length - 1] / 1e6, total / 1e6);
+        }
+        printSlowest("ticks", ticks, slowest);
+        printSlowest("paints", paints, slowest);
+    }
+
+    private void printSlowest(String label, List<RecordedEvent> events, int count) {
+        if (events.isEmpty()) return;
+        List<RecordedEvent> sorted = new ArrayList<>(events);
+        sorted.sort(Comparator.comparing(RecordedEvent::getDuration, Comparator.reverseOrder()));
+        System.out.printf("%nSlowest %s:%n", label);
+        for (RecordedEvent event : sorted.subList(0, Math.min(count, sorted.size()))) {
+            StringBuilder line = new StringBuilder(String.format("  at %8.3f s  %7.3f ms",
+                    Duration.between(first, event.getStartTime()).toNanos() / 1e9, event.getDuration().toNanos() / 1e6));
+            if (event.hasField("collisionTime")) {
+                line.append(String.format("  collision %.3f  merge %.3f  bodies %d  contacts %d",
+                        event.getLong("collisionTime") / 1e6, event.getLong("mergeTime") / 1e6,
+                        event.getInt("bodies"), event.getInt("contacts")));
+            } else {
+                line.append(String.format("  balls %d", event.getInt("balls")));
+            }
+            // A GC pause runs inside a safepoint, so the two are not added up
+            long paused = Math.max(overlap(gcPauses, event), overlap(safepoints, event));
+            if (paused > 0) line.append(String.format("  [JVM paused %.3f ms]", paused / 1e6));
+            System.out.println(line);
+        }
+    }
+
+    // Nanoseconds of the pauses that overlap the event
+    private static long overlap(List<RecordedEvent> pauses, RecordedEvent event) {
+        long paused = 0;
+        for (RecordedEvent pause : pauses) {
+            Instant start = max(pause.getStartTime(), event.getStartTime());
+            Instant end = min(pause.getEndTime(), event.getEndTime());
+            if (start.isBefore(end)) paused += Duration.between(start, end).toNanos();
+        }
+        return paused;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+
+    private static Instant max(Instant a, Instant b) { return a.isAfter(b) ? a : b; }
+
+    private static Instant min(Instant a, Instant b) { return a.isBefore(b) ? a : b; }
+}
@@ -0,0 +1,86 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+/**
+ * The game's always-on Flight Recorder recording. It keeps the last few minutes
+ * of {@link GameEvents} and JDK events on disk, so when a player reports a hitch
+ * the recording can be dumped afterwards, from the game with {@link #dump} or from
+ * outside with {@code jcmd <pid> JFR.dump name=suika filename=hitch.jfr}.
+ * <p>
+ * Start the game with {@code -Dsuika.jfr=false} to leave it off.
+ */
+public final class FlightRecording {
+
+    public static final String NAME = "suika";
+    public static final Path DUMP_DIRECTORY = Path.of("recordings");
+
+    private static final String SETTINGS = "/jfr/suika.jfc";
+    private static final Duration MAX_AGE = Duration.ofMinutes(5);
+    private static final long MAX_SIZE = 32L * 1024 * 1024;
+
+    private static Recording recording;
+
+    private FlightRecording() {}
+
+    /** Starts the recording unless it is switched off or Flight Recorder is unavailable. */
+    public static synchronized void start() {
+        if (recording != null || !Boolean.parseBoolean(System.getProperty("suika.jfr", "true"))) return;
+        if (!FlightRecorder.isAvailable()) {
+            System.err.println("Flight Recorder is not available; not recording");
+            return;
+        }
+        try {
+            Recording r = new Recording(settings());
+            r.setName(NAME);
+            r.setToDisk(true);
+            r.setMaxAge(MAX_AGE);
+            r.setMaxSize(MAX_SIZE);
+            r.start();
+            recording = r;
+        } catch (IOException | ParseException | RuntimeException e) {
+            System.err.println("Could not start flight recording: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes what the recording holds to a new file in {@link #DUMP_DIRECTORY}.
+     * @return The file written, or null if nothing is being recorded.
+     */
+    public static synchronized Path dump() throws IOException {
+        if (recording == null) return null;
+        Files.createDirectories(DUMP_DIRECTORY);
+        Path file = DUMP_DIRECTORY.resolve("suika-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jfr");
+        recording.dump(file);
+        return file;
+    }
+
+    // The JDK's default settings with the game's own on top
+    private static Map<String, String> settings() throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        InputStream in = FlightRecording.class.getResourceAsStream(SETTINGS);
+        if (in == null) {
+            System.err.println("Missing " + SETTINGS + "; recording with the JDK defaults only");
+            return settings;
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            settings.putAll(Configuration.create(reader).getSettings());
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,113 @@
+package utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder events for what the game is doing, so a recording shows a
+ * hitch next to the tick, paint, merge or save that was running at the time, and
+ * next to the JVM's own GC and safepoint events. Settings for them are in
+ * {@code /jfr/suika.jfc}; see {@link FlightRecording}.
+ * <p>
+ * Events are cheap when recording is off: {@code begin}, {@code end} and
+ * {@code commit} do nothing, and callers fill in fields only once
+ * {@code shouldCommit} says the event will be kept.
+ */
+public final class GameEvents {
+
+    private GameEvents() {}
+
+    @Name("suika.Tick")
+    @Label("Physics Tick")
+    @Category({"Suika", "Physics"})
+    @Description("One fixed physics step")
+    @StackTrace(false)
+    public static final class Tick extends Event {
+        @Label("Tick")
+        public long tick;
+        @Label("Bodies")
+        public int bodies;
+        @Label("Candidate Pairs")
+        @Description("Pairs the broad phase handed to the narrow phase")
+        public int candidatePairs;
+        @Label("Contacts")
+        @Description("Candidate pairs that were actually touching")
+        public int contacts;
+        @Label("Collision Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long collisionTime;
+        @Label("Merge Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long mergeTime;
+    }
+
+    @Name("suika.Merge")
+    @Label("Merge")
+    @Category({"Suika", "Physics"})
+    @StackTrace(false)
+    public static final class Merge extends Event {
+        @Label("From Type")
+        public String fromType;
+        @Label("To Type")
+        @Description("Empty when two of the largest balls merge and vanish")
+        public String toType;
+        @Label("Cascade Depth")
+        @Description("1 for a merge from a direct contact, one more for each merge that led to it")
+        public int cascadeDepth;
+    }
+
+    @Name("suika.Drop")
+    @Label("Drop")
+    @Category({"Suika", "Input"})
+    @StackTrace(false)
+    public static final class Drop extends Event {
+        @Label("Ball Type")
+        public String ballType;
+        @Label("X")
+        public int x;
+        @Label("Tick")
+        public long tick;
+    }
+
+    @Name("suika.Paint")
+    @Label("Paint")
+    @Category({"Suika", "Rendering"})
+    @Description("Drawing one frame, on the EDT or, with active rendering, the animation thread")
+    @StackTrace(false)
+    public static final class Paint extends Event {
+        @Label("Balls")
+        public int balls;
+        @Label("Active Rendering")
+        public boolean activeRendering;
+    }
+
+    @Name("suika.ScoreSave")
+    @Label("Score Save")
+    @Category({"Suika", "Storage"})
+    @StackTrace(false)
+    public static final class ScoreSave extends Event {
+        @Label("Score")
+        public int score;
+        @Label("Submitted To Service")
+        @Description("Whether the score was also queued for the leaderboard service")
+        public boolean submittedToService;
+    }
+
+    @Name("suika.Sound")
+    @Label("Sound")
+    @Category({"Suika", "Audio"})
+    @StackTrace(false)
+    public static final class Sound extends Event {
+        @Label("Sound")
+        public String sound;
+        @Label("Gain")
+        public float gain;
+        @Label("Pan")
+        public float pan;
+    }
+}
@@ -0,0 +1,83 @@
+package utils;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageIO;
+
+/**
+ * Decoded image resources, shared by every screen. Each resource is decoded once
+ * with {@link ImageIO}, by whichever thread asks for it first; threads asking while
+ * it is being decoded wait for that decode rather than starting their own.
+ */
+public final class ImageCache {
+
+    private static final Map<String, CompletableFuture<BufferedImage>> images = new ConcurrentHashMap<>();
+
+    private ImageCache() {}
+
+    /**
+     * @param resourcePath A classpath resource such as {@code /icons/bg.png}.
+     * @return The decoded image, or null if it is missing or cannot be decoded.
+     */
+    public static BufferedImage getImage(String resourcePath) {
+        CompletableFuture<BufferedImage> image = images.get(resourcePath);
+        if (image == null) {
+            CompletableFuture<BufferedImage> mine = new CompletableFuture<>();
+            image = images.putIfAbsent(resourcePath, mine);
+            if (image == null) {
+                try {
+                    mine.complete(decode(resourcePath));
+                } finally {
+                    // A no-op after a decode; after an Error, it keeps later callers from waiting forever
+                    mine.complete(null);
+                }
+                return mine.join();
+            }
+        }
+        return image.join();
+    }
+
+    /** True once the resource has been decoded, whether or not that succeeded. */
+    public static boolean isLoaded(String resourcePath) {
+        CompletableFuture<BufferedImage> image = images.get(resourcePath);
+        return image != null && image.isDone();
+    }
+
+    /** A copy of the image scaled to {@code width}, keeping its aspect ratio; null if image is null. */
+    public static BufferedImage scaleToWidth(BufferedImage image, int width) {
+        if (image == null) return null;
+        int height = Math.max(1, Math.round((float) image.getHeight() * width / image.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private static BufferedImage decode(String resourcePath) {
+        URL url = ImageCache.class.getResource(resourcePath);
+        if (url == null) {
+            System.err.println("Image resource not found: " + resourcePath);
+            return null;
+        }
+        try {
+            BufferedImage image = ImageIO.read(url);
+            if (image == null) System.err.println("Unsupported image format: " + resourcePath);
+            return image;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to load image: " + resourcePath + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+}
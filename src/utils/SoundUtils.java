@@ -1,23 +1,66 @@
 package utils;
 
-import java.io.IOException;
-import java.net.URL;
-import javax.sound.sampled.*;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
+/**
+ * Plays sound effects through the shared {@link AudioMixer}. Each resource is
+ * decoded once, ideally ahead of time with {@link #preload}; a sound played
+ * before it was preloaded is decoded in the background and plays once ready,
+ * so the thread that plays it never waits on I/O.
+ */
 public class SoundUtils {
+
+    private static final Map<String, CompletableFuture<Integer>> soundIds = new ConcurrentHashMap<>();
+    private static final ExecutorService loader = VirtualThreads.newThreadPerTaskExecutor("sound-loader");
+
+    /** Decodes sounds up front, on the calling thread, so the first time they play costs no I/O. */
+    public static void preload(String... resourcePaths) {
+        for (String path : resourcePaths) {
+            CompletableFuture<Integer> mine = new CompletableFuture<>();
+            CompletableFuture<Integer> existing = soundIds.putIfAbsent(path, mine);
+            if (existing == null) load(path, mine);
+            else existing.join();
+        }
+    }
+
     public static void playSound(String resourcePath) {
-        try {
-            URL url = SoundUtils.class.getResource(resourcePath);
-            if (url == null) {
-                System.err.println("Sound file not found: " + resourcePath);
-                return;
+        playSound(resourcePath, 1f, 0f);
+    }
+
+    /**
+     * @param gain Linear gain, 1 for the sound's own level.
+     * @param pan -1 for hard left, 0 for center, 1 for hard right.
+     */
+    public static void playSound(String resourcePath, float gain, float pan) {
+        CompletableFuture<Integer> soundId = soundIds.get(resourcePath);
+        if (soundId == null) {
+            CompletableFuture<Integer> mine = new CompletableFuture<>();
+            soundId = soundIds.putIfAbsent(resourcePath, mine);
+            if (soundId == null) {
+                soundId = mine;
+                loader.execute(() -> load(resourcePath, mine));
             }
-            AudioInputStream audioIn = AudioSystem.getAudioInputStream(url);
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioIn);
-            clip.start();
-        } catch (IOException | LineUnavailableException | UnsupportedAudioFileException e) {
-            System.err.println("Failed to play sound: " + resourcePath);
+        }
+        if (soundId.isDone()) AudioMixer.get().play(soundId.join(), gain, pan);
+        else soundId.thenAccept(id -> AudioMixer.get().play(id, gain, pan));
+        GameEvents.Sound event = new GameEvents.Sound();
+        if (event.shouldCommit()) {
+            event.sound = resourcePath;
+            event.gain = gain;
+            event.pan = pan;
+            event.commit();
+        }
+    }
+
+    private static void load(String resourcePath, CompletableFuture<Integer> soundId) {
+        try {
+            soundId.complete(AudioMixer.get().load(resourcePath));
+        } finally {
+            // Whatever went wrong, nothing waiting on the sound should wait forever
+            soundId.complete(-1);
         }
     }
 }
\ No newline at end of file
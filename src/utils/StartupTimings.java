@@ -0,0 +1,31 @@
+package utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logs how long after JVM start each startup milestone is reached, such as the
+ * window becoming visible or the first game frame being drawn. Each milestone is
+ * logged the first time it is marked only.
+ */
+public final class StartupTimings {
+
+    private static final long JVM_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final Map<String, Long> marks = new ConcurrentHashMap<>();
+
+    private StartupTimings() {}
+
+    /** Records a milestone; later marks of the same milestone are ignored. */
+    public static void mark(String milestone) {
+        long elapsed = System.currentTimeMillis() - JVM_START_MILLIS;
+        if (marks.putIfAbsent(milestone, elapsed) == null) {
+            System.out.println("Startup: " + milestone + " at " + elapsed + " ms after JVM start");
+        }
+    }
+
+    /** @return Milliseconds from JVM start to the milestone, or -1 if it has not been reached. */
+    public static long get(String milestone) {
+        return marks.getOrDefault(milestone, -1L);
+    }
+}